@@ -3,31 +3,13 @@ package engine;
 /**
  * Exception class for try to assign a constant variable
  */
-public class ConstantAssignmentException extends Exception {
-
-   // fields
-    /**
-     * constant name
-     */
-    private final String name;
-    private static final String MESSAGE = "ConstantAssignmentException: %s is constant, thus " +
-            "cannot be assigned";
+public class ConstantAssignmentException extends VerificationException {
 
     /**
      * Constructor - Creates a ConstantAssignmentException exception
      * @param name : String - The variable name
      */
     public ConstantAssignmentException(String name) {
-        this.name = name;
-
-    }
-
-    /**
-     * Returns an error message
-     * @return : String - error message
-     */
-    @Override
-    public String getMessage() {
-        return String.format(MESSAGE, name);
+        super(ErrorCode.CONSTANT_ASSIGNMENT, name);
     }
 }
@@ -0,0 +1,69 @@
+package engine;
+
+/**
+ * An error of an s-java file with the line it was found in. The message of the error is formatted
+ * only when it is asked for.
+ */
+public class Diagnostic {
+
+    private static final String FORMAT = "line %d: %s";
+
+    // Fields
+    private final ErrorCode errorCode;
+    private final int line;
+    private final Object[] arguments;
+
+    /**
+     * Constructor - Creates a Diagnostic object
+     * @param errorCode : ErrorCode - The error
+     * @param line : int - The number of the line of the error in the file
+     * @param arguments : Object[] - The arguments of the error message
+     */
+    public Diagnostic(ErrorCode errorCode, int line, Object... arguments) {
+        this.errorCode = errorCode;
+        this.line = line;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Getter for the error code
+     * @return : ErrorCode - The error
+     */
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Getter for the line of the error
+     * @return : int - The number of the line in the file
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Getter for the arguments of the error message
+     * @return : Object[] - The arguments of the error
+     */
+    public Object[] getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Creates the same error on another line, e.g. for an error of a function that moved in its
+     * file
+     * @param lines : int - The number of lines to move the error by, negative to move it up
+     * @return : Diagnostic - The moved error
+     */
+    public Diagnostic moveLines(int lines) {
+        return new Diagnostic(errorCode, line + lines, arguments);
+    }
+
+    /**
+     * Returns the message of the error with its line
+     * @return : String - "line N: " and the error message
+     */
+    public String getMessage() {
+        return String.format(FORMAT, line, errorCode.format(arguments));
+    }
+}
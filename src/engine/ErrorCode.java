@@ -0,0 +1,80 @@
+package engine;
+
+/**
+ * The errors of an s-java file. Every error has a message template, that is formatted with the
+ * arguments of the error only when its message is asked for.
+ */
+public enum ErrorCode {
+
+    // Preprocessing errors
+    INVALID_COMMENT("InvalidCommentException: Invalid type of comment"),
+    END_OF_LINE("EndOfLineException: End of line does not end with ';', '{' or '}': %s "),
+    CLOSING_RIGHT_BRACE("ClosingRightBraceException: The line \" %s \" has a rightBrace {' which " +
+            "should be in a separate line"),
+    INVALID_LINE_FORMAT("InvalidLineFormatException: each line can have only one " +
+            "assignment/declaration variables of specific type, with only one ;"),
+    FUNCTION_DECLARATION("FunctionDeclarationException: illegal function declaration in line: %s"),
+    ILLEGAL_FUNCTION_NAME("IllegalFunctionName: illegal function name of function: %s"),
+    INVALID_FUNCTION_PARAMETER("InvalidFunctionParameterException: Invalid function parameter " +
+            "declaration in line: %s"),
+    FUNCTION_ALREADY_DECLARED("FunctionAlreadyDeclaredException: 2 methods with the same name: %s"),
+    UNBALANCED_PARENTHESES("UnbalancedParenthesesException: File haveunbalanced parentheses"),
+
+    // Verification errors
+    GLOBAL_SCOPE("GlobalScopeException: Illegal command in the global scope, check variables and " +
+            "functions"),
+    ILLEGAL_BLOCK_IN_GLOBAL_SCOPE("IllegalBlockInGlobalScopeException: %s block can appear only " +
+            "in a function, but was detected in the global scope"),
+    CALL_FUNCTION_FROM_GLOBAL("CallFunctionFromGlobalException: illegal call to function " +
+            "{functionName} from global scope. You can call a function only from other function"),
+    NON_EXISTING_VARIABLE("NonExistingVariableException: variable %s doesnt existin this scope or " +
+            "earlier"),
+    NON_EXISTING_FUNCTION("NonExistingFunctionException: function %s doesnt exist"),
+    NUMBER_OF_VARS_IN_FUNC_CALL("NumberOfVarsInFuncCallException: There are %s variables than " +
+            "needed in the call for %s function"),
+    INNER_METHOD_DECLARATION("InnerMethodDeclarationException: It is illegal to declare a method " +
+            "inside a method"),
+    ILLEGAL_INNER_BLOCK("IllegalInnerBlockException: There is an illegal command in a block"),
+    FINAL_RETURN("FinalReturnException: missing final return statement"),
+    ILLEGAL_RETURN_FORMAT("IllegalReturnFormatException: illegal return format. Must be written " +
+            "like : return;"),
+    EMPTY_CONDITION("EmptyConditionException: Empty condition in %s block"),
+    ILLEGAL_CONDITION("IllegalConditionException: Illegal condition in %s block. Condition is a " +
+            "boolean value that is either: One of the reserved words is true or false / An " +
+            "initialized boolean, double or int variable / A double or int constant/value Each " +
+            "one can be separated with one \"&&\" or \"||\""),
+    ILLEGAL_VAR_TYPE_IN_CONDITION("IllegalVarTypeInConditionException: %s is an illegal variable " +
+            "type for condition of a %s"),
+    UNINITIALIZED_VARIABLE_IN_CONDITION("UninitializedVariableInConditionException: variable %s " +
+            "is uninitialized in the %s condition. "),
+    INVALID_VARIABLE_NAME("InvalidVariableNameException name '%s' is invalid variable name"),
+    INVALID_VARIABLE_DECLARATION("InvalidVariableDeclarationException: Unexpected token '%s' " +
+            "after variable: %s"),
+    INVALID_VARIABLE_ASSIGNMENT("InvalidVariableAssignmentException: %s was not assigned properly"),
+    INVALID_VALUE_TYPE("InvalidValueTypeException: variable %s is of type %s"),
+    VARIABLE_ALREADY_DECLARED("VariableAlreadyDeclaredException: Variable '%s' already declared " +
+            "in the current scope"),
+    CONSTANT_ASSIGNMENT("ConstantAssignmentException: %s is constant, thus cannot be assigned"),
+    CONSTANT_NON_ASSIGNMENT("ConstantNonAssignmentException: Constant variable %s cannot be null"),
+    UNINITIALIZED_GLOBAL_VARIABLE("UninitializedGlobalVariableException: Uninitialized global " +
+            "variable '%s'"),
+    /**
+     * A variable that is not declared in any accessible scope, as reported by the symbol table
+     */
+    UNDECLARED_VARIABLE("%s");
+
+    private final String template;
+
+    ErrorCode(String template) {
+        this.template = template;
+    }
+
+    /**
+     * Formats the message of the error
+     * @param arguments : Object[] - The arguments of the error, in the order of the template
+     * @return : String - The message of the error
+     */
+    public String format(Object... arguments) {
+        return arguments.length == 0 ? template : String.format(template, arguments);
+    }
+}
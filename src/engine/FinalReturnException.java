@@ -3,18 +3,12 @@ package engine;
 /**
  * Exception class for non-siting final return
  */
-public class FinalReturnException extends Exception {
-
-    // Fields
-    private static final String MESSAGE = "FinalReturnException: missing final return statement";
+public class FinalReturnException extends VerificationException {
 
     /**
-     * Returns an error message
-     * @return : String - error message
+     * Constructor - Creates a FinalReturnException exception
      */
-    @Override
-    public String getMessage() {
-        return MESSAGE;
+    public FinalReturnException() {
+        super(ErrorCode.FINAL_RETURN);
     }
-
 }
@@ -0,0 +1,332 @@
+package engine;
+
+import tables.FunctionSignature;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the results of verified function declarations, so a function that did not
+ * change is not verified again when its file is verified again, e.g. by a daemon.
+ * A function is keyed by a hash of its tokens and their relative lines and the all-errors mode.
+ * Its result is valid as long as every global variable it read resolves to the same declaration
+ * in the global scope at the function, and every function it calls has the same signature. So
+ * every result keeps the signature every function it looked up had, or that it did not exist, and
+ * a changed signature invalidates only the results of the functions that call it.
+ * The errors of a function are kept relative to its first line, so moving the function in its
+ * file keeps its result.
+ * The cache keeps the most recently used functions, up to a maximum number of them, and can be
+ * written to a stream and read back, so its results outlive the program.
+ */
+public class FunctionCache {
+
+    private static final int DEFAULT_MAX_FUNCTIONS = 1 << 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    // The version of the written format and of the verifier, a cache of another one is not read
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAX_STRING_LENGTH = 16 << 20;
+    private static final String IOEXCEPTION_WRONG_VERSION = "IOException: The function cache " +
+            "was written by another version";
+    private static final String IOEXCEPTION_MALFORMED = "IOException: The function cache is " +
+            "malformed";
+
+    // Key -> result, the least recently used first
+    private final LinkedHashMap<ByteBuffer, Result> results;
+    private boolean isChanged;
+
+    // The result of a function: the global variables it read, the signatures of the functions it
+    // calls, its errors and how it stopped the file, if it did
+    static class Result {
+        private final HashMap<String, Integer> globalReads;
+        private final HashMap<String, FunctionSignature> functionCalls;
+        private final ArrayList<Diagnostic> diagnostics;
+        private final VerificationException error;
+        private final RuntimeException crash;
+
+        Result(HashMap<String, Integer> globalReads,
+               HashMap<String, FunctionSignature> functionCalls, ArrayList<Diagnostic> diagnostics,
+               VerificationException error, RuntimeException crash) {
+            this.globalReads = globalReads;
+            this.functionCalls = functionCalls;
+            this.diagnostics = diagnostics;
+            this.error = error;
+            this.crash = crash;
+        }
+
+        HashMap<String, Integer> getGlobalReads() {
+            return globalReads;
+        }
+
+        HashMap<String, FunctionSignature> getFunctionCalls() {
+            return functionCalls;
+        }
+
+        ArrayList<Diagnostic> getDiagnostics() {
+            return diagnostics;
+        }
+
+        VerificationException getError() {
+            return error;
+        }
+
+        RuntimeException getCrash() {
+            return crash;
+        }
+    }
+
+    // An error of a function read back from a written cache, which keeps its error code and its
+    // arguments only
+    private static class CachedError extends VerificationException {
+        private static final long serialVersionUID = 1L;
+
+        CachedError(ErrorCode errorCode, Object[] arguments) {
+            super(errorCode, arguments);
+        }
+    }
+
+    /**
+     * Constructor - Creates an empty FunctionCache object of the default size
+     */
+    public FunctionCache() {
+        this(DEFAULT_MAX_FUNCTIONS);
+    }
+
+    /**
+     * Constructor - Creates an empty FunctionCache object
+     * @param maxFunctions : int - The number of functions the cache keeps at most
+     */
+    public FunctionCache(int maxFunctions) {
+        this.results = new LinkedHashMap<>(16, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Result> eldest) {
+                return size() > maxFunctions;
+            }
+        };
+    }
+
+    /**
+     * Checks if results were kept since the cache was created
+     * @return : boolean - True if a result was kept, False otherwise
+     */
+    public synchronized boolean isChanged() {
+        return isChanged;
+    }
+
+    /**
+     * Keeps the results of another cache, as the most recently used ones
+     * @param other : FunctionCache - The cache whose results are kept
+     */
+    public void addAll(FunctionCache other) {
+        ArrayList<Map.Entry<ByteBuffer, Result>> entries;
+        synchronized (other) {
+            entries = new ArrayList<>(other.results.entrySet());
+        }
+        synchronized (this) {
+            for (Map.Entry<ByteBuffer, Result> entry : entries) {
+                results.put(entry.getKey(), entry.getValue());
+            }
+            isChanged |= !entries.isEmpty();
+        }
+    }
+
+    /**
+     * Writes the results to a stream, the least recently used first. A result of a function that
+     * crashed the verification with anything but an undeclared variable is not written
+     * @param output : DataOutputStream - The stream the results are written to
+     * @throws IOException - When the stream cannot be written
+     */
+    public synchronized void write(DataOutputStream output) throws IOException {
+        output.writeInt(FORMAT_VERSION);
+        int count = 0;
+        for (Result result : results.values()) {
+            count += isWritable(result) ? 1 : 0;
+        }
+        output.writeInt(count);
+        for (Map.Entry<ByteBuffer, Result> entry : results.entrySet()) {
+            if (isWritable(entry.getValue())) {
+                writeBytes(output, entry.getKey().array());
+                writeResult(output, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads results written by write, and keeps them as the most recently used ones
+     * @param input : DataInputStream - The stream the results are read from
+     * @throws IOException - When the stream cannot be read, or was not written by this version
+     */
+    public synchronized void read(DataInputStream input) throws IOException {
+        if (input.readInt() != FORMAT_VERSION) {
+            throw new IOException(IOEXCEPTION_WRONG_VERSION);
+        }
+        int count = input.readInt();
+        try {
+            for (int i = 0; i < count; i++) {
+                ByteBuffer key = ByteBuffer.wrap(readBytes(input));
+                results.put(key, readResult(input));
+            }
+        } catch (IllegalArgumentException e) {
+            // An error code that does not exist
+            throw new IOException(IOEXCEPTION_MALFORMED, e);
+        }
+    }
+
+    // Looks up the result of a function, or returns null if it is not in the cache
+    synchronized Result get(ByteBuffer key) {
+        return results.get(key);
+    }
+
+    // Keeps the result of a function
+    synchronized void put(ByteBuffer key, Result result) {
+        results.put(key, result);
+        isChanged = true;
+    }
+
+    // Only the crash of an undeclared variable is a result of the source, any other is kept in
+    // memory only
+    private static boolean isWritable(Result result) {
+        return result.crash == null || (result.crash.getClass() == IllegalArgumentException.class &&
+                result.crash.getMessage() != null);
+    }
+
+    private static void writeResult(DataOutputStream output, Result result) throws IOException {
+        output.writeInt(result.globalReads.size());
+        for (Map.Entry<String, Integer> read : result.globalReads.entrySet()) {
+            writeString(output, read.getKey());
+            output.writeInt(read.getValue());
+        }
+        output.writeInt(result.functionCalls.size());
+        for (Map.Entry<String, FunctionSignature> call : result.functionCalls.entrySet()) {
+            writeString(output, call.getKey());
+            writeSignature(output, call.getValue());
+        }
+        output.writeInt(result.diagnostics.size());
+        for (Diagnostic diagnostic : result.diagnostics) {
+            writeString(output, diagnostic.getErrorCode().name());
+            output.writeInt(diagnostic.getLine());
+            writeArguments(output, diagnostic.getArguments());
+        }
+        output.writeBoolean(result.error != null);
+        if (result.error != null) {
+            writeString(output, result.error.getErrorCode().name());
+            writeArguments(output, result.error.getArguments());
+        }
+        output.writeBoolean(result.crash != null);
+        if (result.crash != null) {
+            writeString(output, result.crash.getMessage());
+        }
+    }
+
+    private static Result readResult(DataInputStream input) throws IOException {
+        HashMap<String, Integer> globalReads = new HashMap<>();
+        int readsCount = input.readInt();
+        for (int i = 0; i < readsCount; i++) {
+            globalReads.put(readString(input), input.readInt());
+        }
+        HashMap<String, FunctionSignature> functionCalls = new HashMap<>();
+        int callsCount = input.readInt();
+        for (int i = 0; i < callsCount; i++) {
+            functionCalls.put(readString(input), readSignature(input));
+        }
+        ArrayList<Diagnostic> diagnostics = new ArrayList<>();
+        int diagnosticsCount = input.readInt();
+        for (int i = 0; i < diagnosticsCount; i++) {
+            ErrorCode errorCode = ErrorCode.valueOf(readString(input));
+            int line = input.readInt();
+            diagnostics.add(new Diagnostic(errorCode, line, readArguments(input)));
+        }
+        VerificationException error = null;
+        if (input.readBoolean()) {
+            ErrorCode errorCode = ErrorCode.valueOf(readString(input));
+            error = new CachedError(errorCode, readArguments(input));
+        }
+        RuntimeException crash = input.readBoolean() ?
+                new IllegalArgumentException(readString(input)) : null;
+        return new Result(globalReads, functionCalls, diagnostics, error, crash);
+    }
+
+    // A signature as its number of parameters and the type and constness of every one, or -1 for
+    // a function that does not exist
+    private static void writeSignature(DataOutputStream output, FunctionSignature signature)
+            throws IOException {
+        if (signature == null) {
+            output.writeInt(-1);
+            return;
+        }
+        output.writeInt(signature.getParametersCount());
+        for (int i = 0; i < signature.getParametersCount(); i++) {
+            output.writeByte(signature.getParameterTypeKind(i));
+            output.writeBoolean(signature.isParameterConstant(i));
+        }
+    }
+
+    private static FunctionSignature readSignature(DataInputStream input) throws IOException {
+        int parametersCount = input.readInt();
+        if (parametersCount < 0) {
+            return null;
+        }
+        checkLength(parametersCount);
+        byte[] typeKinds = new byte[parametersCount];
+        boolean[] isConstants = new boolean[parametersCount];
+        for (int i = 0; i < parametersCount; i++) {
+            typeKinds[i] = input.readByte();
+            isConstants[i] = input.readBoolean();
+        }
+        return new FunctionSignature(typeKinds, isConstants);
+    }
+
+    // The arguments of an error are formatted as strings, so they are kept as strings
+    private static void writeArguments(DataOutputStream output, Object[] arguments)
+            throws IOException {
+        output.writeInt(arguments.length);
+        for (Object argument : arguments) {
+            output.writeBoolean(argument != null);
+            if (argument != null) {
+                writeString(output, argument.toString());
+            }
+        }
+    }
+
+    private static Object[] readArguments(DataInputStream input) throws IOException {
+        Object[] arguments = new Object[checkLength(input.readInt())];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = input.readBoolean() ? readString(input) : null;
+        }
+        return arguments;
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        writeBytes(output, string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return new String(readBytes(input), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[checkLength(input.readInt())];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+    // Checks the length of an array before it is allocated, so a malformed cache is not read
+    // into a huge one
+    private static int checkLength(int length) throws IOException {
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException(IOEXCEPTION_MALFORMED);
+        }
+        return length;
+    }
+}
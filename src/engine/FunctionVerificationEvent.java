@@ -0,0 +1,35 @@
+package engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event of verifying a single function declaration, with the name of the
+ * function, its lines and its number of tokens.
+ */
+@Name("sjavac.FunctionVerification")
+@Label("Function Verification")
+@Category({"S-Java", "Verifier"})
+@Description("Verifying the declaration and the body of a function")
+@Enabled(false)
+@StackTrace(false)
+class FunctionVerificationEvent extends Event {
+
+    @Label("Function")
+    String name;
+
+    @Label("First Line")
+    int firstLine;
+
+    @Label("Last Line")
+    @Description("The line the verification of the function ended on")
+    int lastLine;
+
+    @Label("Tokens")
+    int tokensCount;
+}
@@ -3,19 +3,12 @@ package engine;
 /**
  * Exception class for illegal command in global scope
  */
-public class GlobalScopeException extends Exception {
-
-    // Fields
-    private static final String MESSAGE = "GlobalScopeException: Illegal command in the global scope, " +
-            "check variables" +
-            " and functions";
+public class GlobalScopeException extends VerificationException {
 
     /**
-     * Returns an error message
-     * @return : String - error message
+     * Constructor - Creates a GlobalScopeException exception
      */
-    @Override
-    public String getMessage() {
-        return MESSAGE;
+    public GlobalScopeException() {
+        super(ErrorCode.GLOBAL_SCOPE);
     }
 }
@@ -3,32 +3,13 @@ package engine;
 /**
  * Exception class illegal block in global scope
  */
-public class IllegalBlockInGlobalScopeException extends Exception {
-
-    // Fields
-    private static final String PLACE_PLACEHOLDER = "{type}";
-    private static final String MESSAGE = "IllegalBlockInGlobalScopeException: {type} block can appear " +
-            "only in a function, " +
-            "but was detected in the global scope";
-    /**
-     * block type
-     */
-    private final String blockType;
+public class IllegalBlockInGlobalScopeException extends VerificationException {
 
     /**
      * Constructor - Creates a IllegalBlockInGlobalScopeException exception
      * @param blockType : String - The blocks type
      */
     public IllegalBlockInGlobalScopeException(String blockType) {
-        this.blockType = blockType;
-    }
-
-    /**
-     * Returns an error message
-     * @return : String - error message
-     */
-    @Override
-    public String getMessage() {
-        return MESSAGE.replace(PLACE_PLACEHOLDER, blockType);
+        super(ErrorCode.ILLEGAL_BLOCK_IN_GLOBAL_SCOPE, blockType);
     }
 }
@@ -3,18 +3,12 @@ package engine;
 /**
  * Exception class for illegal command in a block
  */
-public class IllegalInnerBlockException extends Exception {
-
-    // Field
-    private static final String MESSAGE = "IllegalInnerBlockException: There is an illegal " +
-            "command in a block";
+public class IllegalInnerBlockException extends VerificationException {
 
     /**
-     * Returns an error message
-     * @return : String - error message
+     * Constructor - Creates a IllegalInnerBlockException exception
      */
-    @Override
-    public String getMessage() {
-        return MESSAGE;
+    public IllegalInnerBlockException() {
+        super(ErrorCode.ILLEGAL_INNER_BLOCK);
     }
 }
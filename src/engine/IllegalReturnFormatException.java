@@ -3,18 +3,12 @@ package engine;
 /**
  * Exception class for illegal return format
  */
-public class IllegalReturnFormatException extends Exception {
-
-    // Fields
-    private static final String MESSAGE = "IllegalReturnFormatException: illegal return format. " +
-            "Must be written like : return;";
+public class IllegalReturnFormatException extends VerificationException {
 
     /**
-     * Returns an error message
-     * @return : String - error message
+     * Constructor - Creates a IllegalReturnFormatException exception
      */
-    @Override
-    public String getMessage() {
-        return MESSAGE;
+    public IllegalReturnFormatException() {
+        super(ErrorCode.ILLEGAL_RETURN_FORMAT);
     }
 }
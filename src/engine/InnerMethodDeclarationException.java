@@ -3,18 +3,12 @@ package engine;
 /**
  * Exception class for illegal declaration of a method inside another method
  */
-public class InnerMethodDeclarationException extends Exception {
-
-    // Fields
-    private static final String MESSAGE = "InnerMethodDeclarationException: It is illegal to declare " +
-            "a method inside a method";
+public class InnerMethodDeclarationException extends VerificationException {
 
     /**
-     * Returns an error message
-     * @return : String - error message
+     * Constructor - Creates a InnerMethodDeclarationException exception
      */
-    @Override
-    public String getMessage() {
-        return MESSAGE;
+    public InnerMethodDeclarationException() {
+        super(ErrorCode.INNER_METHOD_DECLARATION);
     }
 }
@@ -3,16 +3,12 @@ package engine;
 /**
  * Exception class for Invalid type of comment
  */
-public class InvalidCommentException extends Exception {
-
-    private static final String MESSAGE = "InvalidCommentException: Invalid type of comment";
+public class InvalidCommentException extends VerificationException {
 
     /**
-     * Returns an error message
-     * @return : String - error message
+     * Constructor - Creates a InvalidCommentException exception
      */
-    @Override
-    public String getMessage() {
-        return MESSAGE;
+    public InvalidCommentException() {
+        super(ErrorCode.INVALID_COMMENT);
     }
 }
@@ -4,18 +4,12 @@ package engine;
  * Exception class for Invalid line format of double (or more) assignment/declaration
  * in one line (For example: int a=5, String s;)
  */
-public class InvalidLineFormatException extends Exception {
-
-    // Field
-    private static final String MESSAGE = "InvalidLineFormatException: each line can have only one " +
-            "assignment/declaration variables of specific type, with only one ;";
+public class InvalidLineFormatException extends VerificationException {
 
     /**
-     * Returns an error message
-     * @return : String - error message
+     * Constructor - Creates a InvalidLineFormatException exception
      */
-    @Override
-    public String getMessage() {
-        return MESSAGE;
+    public InvalidLineFormatException() {
+        super(ErrorCode.INVALID_LINE_FORMAT);
     }
 }
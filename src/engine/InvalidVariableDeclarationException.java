@@ -3,18 +3,7 @@ package engine;
 /**
  * Exception class for unexpected token after variable
  */
-public class InvalidVariableDeclarationException extends Exception {
-
-    // Fields
-    private static final String MESSAGE = "InvalidVariableDeclarationException: Unexpected token '";
-    /**
-     * variable name
-     */
-    private final String variableName;
-    /**
-     * current token
-     */
-    private final String currentToken;
+public class InvalidVariableDeclarationException extends VerificationException {
 
     /**
      * Constructor - Creates a InvalidVariableDeclarationException exception
@@ -22,16 +11,6 @@ public class InvalidVariableDeclarationException extends Exception {
      * @param currentToken : String - the token after the variable
      */
     public InvalidVariableDeclarationException(String variableName, String currentToken) {
-        this.variableName = variableName;
-        this.currentToken = currentToken;
-    }
-
-    /**
-     * Returns an error message
-     * @return : String - error message
-     */
-    @Override
-    public String getMessage() {
-        return MESSAGE + currentToken + "' after variable: " + variableName;
+        super(ErrorCode.INVALID_VARIABLE_DECLARATION, currentToken, variableName);
     }
 }
@@ -0,0 +1,38 @@
+package engine;
+
+import tables.SymbolTable;
+
+/**
+ * The counts of the symbol tables a source was verified with: the number of variables declared,
+ * and the deepest scope that was entered. A source whose function bodies are verified in parallel
+ * uses a table for every function, and all of them are counted.
+ */
+public class SymbolCounts {
+
+    // Fields
+    private int declaredCount;
+    private int peakScope;
+
+    /**
+     * Getter for the number of declared variables
+     * @return : int - The number of variables declared in all the counted tables
+     */
+    public int getDeclaredCount() {
+        return declaredCount;
+    }
+
+    /**
+     * Getter for the deepest scope
+     * @return : int - The deepest scope entered in any of the counted tables, 1 for the global
+     *         scope
+     */
+    public int getPeakScope() {
+        return peakScope;
+    }
+
+    // Adds the counts of a symbol table
+    void add(SymbolTable table) {
+        declaredCount += table.getDeclaredCount();
+        peakScope = Math.max(peakScope, table.getPeakScope());
+    }
+}
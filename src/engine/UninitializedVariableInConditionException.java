@@ -3,22 +3,7 @@ package engine;
 /**
  * Exception class for uninitialized variable in block condition
  */
-public class UninitializedVariableInConditionException extends Exception {
-
-    // Fields
-    private static final String MESSAGE = "UninitializedVariableInConditionException: " +
-            "variable {var} is uninitialized" +
-            " in the {block} condition. ";
-    private static final String VAR_PLACEHOLDER = "{var}";
-    private static final String BLOCK_PLACEHOLDER = "{block}";
-    /**
-     * variable name
-     */
-    private final String name;
-    /**
-     * block type
-     */
-    private final String blockType;
+public class UninitializedVariableInConditionException extends VerificationException {
 
     /**
      * Constructor - Creates a UninitializedVariableInConditionException exception
@@ -26,17 +11,6 @@ public class UninitializedVariableInConditionException extends Exception {
      * @param blockType: String - if/while
      */
     public UninitializedVariableInConditionException(String name, String blockType) {
-        this.name = name;
-        this.blockType = blockType;
-    }
-
-    /**
-     * Returns an error message
-     * @return : String - error message
-     */
-    @Override
-    public String getMessage(){
-        String res = MESSAGE.replace(VAR_PLACEHOLDER, name);
-        return res.replace(BLOCK_PLACEHOLDER, blockType);
+        super(ErrorCode.UNINITIALIZED_VARIABLE_IN_CONDITION, name, blockType);
     }
 }
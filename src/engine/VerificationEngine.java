@@ -1,42 +1,45 @@
 package engine;
 
+import preprocessor.InvalidFunctionParameterException;
 import tables.FunctionsTable;
+import tables.FunctionSignature;
 import tables.SymbolTable;
+import tokenizer.SourceLines;
+import tokenizer.TokenKind;
 import tokenizer.Tokenizer;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.Arrays;
+import jdk.jfr.FlightRecorder;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.RecursiveAction;
 
 /**
- * This class verifies a given s-java file and prints 1/2 for error and 0 for success
+ * This class verifies a given s-java file and prints 1/2 for error and 0 for success.
+ * In the all-errors mode the verification recovers from every error by skipping to the end of the
+ * statement, at the next ';', '}' or function declaration, and all the errors are reported
+ * together with their line numbers.
+ * In large files the global scope is verified first, and the function bodies are verified
+ * concurrently, every one against a snapshot of the global scope at its declaration.
+ * With a FunctionCache, the files are verified the same way, and a function that did not change
+ * since it was last verified, and whose global variables and called functions did not change, is
+ * not verified again.
  */
 public class VerificationEngine {
 
     // String constants
-    private static final String VOID = "void";
-    private static final String FINAL = "final";
-    private static final String EQUALS = "=";
-    private static final String EOL_COMMA = ";";
-    private static final String COMMA = ",";
-    private static final String FALSE = "false";
-    private static final String DOT = ".";
-    private static final String BRACKET_CLOSING = ")";
     private static final String INT = "int";
     private static final String CHAR = "char";
     private static final String BOOLEAN = "boolean";
     private static final String DOUBLE = "double";
     private static final String STRING = "String";
-    private static final String BRACE_CLOSING = "}";
     private static final String IF = "if";
     private static final String WHILE = "while";
-    private static final String RETURN = "return";
-    private static final String BRACKET_OPENING = "(";
 
     // Int constants
     private static final int HAS_VALUE = 0;
@@ -45,86 +48,215 @@ public class VerificationEngine {
     private static final int GLOBAL_SCOPE = 1;
     private static final int VARIABLE_NOT_DECLARED = 0;
     private static final String SUCCESS = "0";
-    private static final String IO_EXCEPTION = "2";
-    private static final String IO_EXCEPTION_MESSAGE = "Occurred a problem while the opening/closing " +
-            "the file";
     private static final String EXCEPTION = "1";
-    private static final String INVALID_VALUE_TYPE_EXCEPTION = "InvalidValueTypeException";
     private static final int THREE = 3;
     private static final int TWO = 2;
     private static final String MORE = "more";
     private static final String FEWER = "fewer";
     private static final String FUNCTION_CALL_VAR = "function call var";
-    private static final String TRUE = "true";
-    private static final String EMPTY_STRING = "";
-    private static final String STRING_QUOTE = "\"";
-    private static final String CHAR_QUOTE = "'";
-    private static final String PLUS = "+";
-    private static final String MINUS = "-";
+    private static final String NOT_A_TYPE = "Token kind %d is not a type";
+
+    // Files from this number of tokens verify their function bodies in parallel
+    private static final int PARALLEL_TOKENS = 1 << 18;
+    private static final String HASH_ALGORITHM = "SHA-256";
 
     // Fields
     private FunctionsTable functionTable;
     private SymbolTable variablesTable;
     private Tokenizer tokenizer;
+    private boolean allErrors;
+    private ArrayList<Diagnostic> diagnostics;
+    private volatile boolean isFunctionStopped;
+    private FunctionCache functionCache;
+    // A digest of the all-errors mode, which every function key starts with
+    private MessageDigest modeDigest;
+    // Function name -> its signature, or null if it does not exist, for every function that was
+    // looked up, while the lookups are recorded
+    private HashMap<String, FunctionSignature> functionCalls;
+    // The counts the symbol tables are added to, or null
+    private SymbolCounts symbolCounts;
 
-    // Regex
-    private static final String VALID_INT_REGEX = "^[+-]?\\d+$";
-    private static final String VALID_CHAR_REGEX = "^[^']$";
-    private static final String VALID_DOUBLE_REGEX = "^[+-]?(\\d+(\\.\\d*)?|\\.\\d+)([eE][+-]?\\d+)?$";
-    private static final String VALID_STRING_REGEX = "^.*$";
-
-    // Patterns
-    private final Pattern validIntPattern = Pattern.compile(VALID_INT_REGEX);
-    private final Pattern validCharPattern = Pattern.compile(VALID_CHAR_REGEX);
-    private final Pattern validDoublePattern = Pattern.compile(VALID_DOUBLE_REGEX);
-    private final Pattern validStringPattern = Pattern.compile(VALID_STRING_REGEX);
-
-    // More constants
-    private static final Set<String> TYPES = new HashSet<>(Arrays.asList(
-            INT, CHAR, BOOLEAN, DOUBLE, STRING));
-    private static final String OR = "|";
-    private static final String AND = "&";
-    private static final Set<String> AFTER_VARIABLE_VALUE_SYMBOLS  = new HashSet<>(Arrays.asList(
-            EOL_COMMA, BRACKET_CLOSING, COMMA, OR, AND));
-    private static final Set<String> RESERVED_NAMES =
-            new HashSet<>(Arrays.asList(VOID, INT, DOUBLE, STRING, CHAR, IF, WHILE, BOOLEAN));
+    /**
+     * Constructor - Creates a VerificationEngine object and verifies the cleaned source
+     * @param cleanedSource : SourceLines - The lines of the file left by the PreProcessor
+     * @param functionTable : FunctionsTable - The object that stores all the information about
+     *                     the functions in the file
+     */
+    public VerificationEngine(SourceLines cleanedSource, FunctionsTable functionTable) {
+        this(cleanedSource, functionTable, false);
+    }
 
     /**
-     * Constructor - Creates a VerificationEngine object, opens the file and verifies the
-     * @param path : String  - path to the file to verify
+     * Constructor - Creates a VerificationEngine object and verifies the cleaned source
+     * @param cleanedSource : SourceLines - The lines of the file left by the PreProcessor
      * @param functionTable : FunctionsTable - The object that stores all the information about
      *                     the functions in the file
+     * @param allErrors : boolean - True to recover from errors and report all of them, False to
+     *                  stop at the first error
      */
-    public VerificationEngine(String path, FunctionsTable functionTable) {
-        try(FileReader fileReader = new FileReader(path);
-                BufferedReader bufferedReader = new BufferedReader(fileReader))
-        {
-            String[] listOfLines = bufferedReader.lines().toArray(String[]::new);
-            this.tokenizer = new Tokenizer(listOfLines);
-            this.variablesTable = new SymbolTable();
-            this.functionTable = functionTable;
-            tokenizer.advance();
-            verifyFile();
-            System.out.print(SUCCESS);
-        } catch (IOException e){
-            System.out.print(IO_EXCEPTION);
-            System.err.println(IO_EXCEPTION_MESSAGE);
-        } catch (GlobalScopeException | InvalidVariableNameException | InvalidVariableDeclarationException |
-                 InvalidValueTypeException | FinalReturnException |
-                 InnerMethodDeclarationException | NonExistingFunctionException |
-                 IllegalReturnFormatException | NumberOfVarsInFuncCallException |
-                 CallFunctionFromGlobalException | NonExistingVariableException |
-                 IllegalBlockInGlobalScopeException | IllegalVarTypeInConditionException |
-                 UninitializedVariableInConditionException | IllegalConditionException |
-                 InvalidVariableAssignmentException | ConstantAssignmentException |
-                 VariableAlreadyDeclaredException | EmptyConditionException | ConstantNonAssignmentException
-                 | UninitializedGlobalVariableException | IllegalInnerBlockException e) {
+    public VerificationEngine(SourceLines cleanedSource, FunctionsTable functionTable,
+                              boolean allErrors) {
+        this(new Tokenizer(cleanedSource), new SymbolTable(), functionTable, allErrors);
+        try {
+            verifySource();
+            if (diagnostics.isEmpty()) {
+                System.out.print(SUCCESS);
+            } else {
+                System.out.println(EXCEPTION);
+                for (Diagnostic diagnostic : diagnostics) {
+                    System.err.println(diagnostic.getMessage());
+                }
+            }
+        } catch (VerificationException e) {
             System.out.println(EXCEPTION);
             System.err.print(e.getMessage());
         }
 
     }
 
+    /**
+     * Verifies a cleaned source without printing anything, so many sources can be verified
+     * concurrently
+     * @param cleanedSource : SourceLines - The lines of the file left by the PreProcessor
+     * @param functionTable : FunctionsTable - The object that stores all the information about
+     *                     the functions in the file
+     * @param allErrors : boolean - True to recover from errors and report all of them, False to
+     *                  stop at the first error
+     * @return : ArrayList<String> - The messages of the errors of the source, empty if it is valid
+     */
+    public static ArrayList<String> verify(SourceLines cleanedSource, FunctionsTable functionTable,
+                                           boolean allErrors) {
+        return verify(cleanedSource, functionTable, allErrors, null);
+    }
+
+    /**
+     * Verifies a cleaned source without printing anything, and verifies again only the functions
+     * whose results are not in a cache
+     * @param cleanedSource : SourceLines - The lines of the file left by the PreProcessor
+     * @param functionTable : FunctionsTable - The object that stores all the information about
+     *                     the functions in the file
+     * @param allErrors : boolean - True to recover from errors and report all of them, False to
+     *                  stop at the first error
+     * @param functionCache : FunctionCache - The results of functions that were verified before,
+     *                      which gets the results of the functions of this source, or null
+     * @return : ArrayList<String> - The messages of the errors of the source, empty if it is valid
+     */
+    public static ArrayList<String> verify(SourceLines cleanedSource, FunctionsTable functionTable,
+                                           boolean allErrors, FunctionCache functionCache) {
+        return verify(new Tokenizer(cleanedSource), functionTable, allErrors, functionCache, null);
+    }
+
+    /**
+     * Verifies the tokens of a cleaned source without printing anything, e.g. to measure the
+     * tokenizing of the source apart from its verification, and counts the symbols it declares
+     * @param tokens : Tokenizer - The tokens of the lines of the file left by the PreProcessor
+     * @param functionTable : FunctionsTable - The object that stores all the information about
+     *                     the functions in the file
+     * @param allErrors : boolean - True to recover from errors and report all of them, False to
+     *                  stop at the first error
+     * @param functionCache : FunctionCache - The results of functions that were verified before,
+     *                      which gets the results of the functions of this source, or null
+     * @param symbolCounts : SymbolCounts - The counts the symbol tables of the source are added
+     *                     to, or null
+     * @return : ArrayList<String> - The messages of the errors of the source, empty if it is valid
+     */
+    public static ArrayList<String> verify(Tokenizer tokens, FunctionsTable functionTable,
+                                           boolean allErrors, FunctionCache functionCache,
+                                           SymbolCounts symbolCounts) {
+        VerificationEngine engine = new VerificationEngine(tokens, new SymbolTable(),
+                functionTable, allErrors);
+        engine.functionCache = functionCache;
+        engine.symbolCounts = symbolCounts;
+        ArrayList<String> messages = new ArrayList<>();
+        try {
+            engine.verifySource();
+            for (Diagnostic diagnostic : engine.diagnostics) {
+                messages.add(diagnostic.getMessage());
+            }
+        } catch (VerificationException e) {
+            messages.add(e.getMessage());
+        } finally {
+            engine.countSymbols(engine.variablesTable);
+        }
+        return messages;
+    }
+
+    // Verifies the whole source, the function bodies of large sources, or of all the sources
+    // when functions are cached, in parallel
+    private void verifySource() throws VerificationException {
+        tokenizer.advance();
+        if (functionCache != null || tokenizer.getTokensCount() >= PARALLEL_TOKENS) {
+            verifyFileInParallel();
+        } else {
+            verifyFile();
+        }
+    }
+
+    // Creates an engine over a cursor of the tokens and a symbol table, e.g. to verify a single
+    // function declaration against its own snapshot of the global scope
+    private VerificationEngine(Tokenizer tokenizer, SymbolTable globalScope,
+                               FunctionsTable functionTable, boolean allErrors) {
+        this.tokenizer = tokenizer;
+        this.variablesTable = globalScope;
+        this.functionTable = functionTable;
+        this.allErrors = allErrors;
+        this.diagnostics = new ArrayList<>();
+    }
+
+    // Records an error, and skips the rest of the statement that started at the given mark.
+    // The symbol table reports a variable that is not declared with an IllegalArgumentException
+    private void recover(Exception error, int statementMark, int scope, boolean stopAtVoid) {
+        if (error instanceof VerificationException verificationError) {
+            diagnostics.add(new Diagnostic(verificationError.getErrorCode(),
+                    tokenizer.getCurrentLine(), verificationError.getArguments()));
+        } else {
+            diagnostics.add(new Diagnostic(ErrorCode.UNDECLARED_VARIABLE,
+                    tokenizer.getCurrentLine(), error.getMessage()));
+        }
+        while (variablesTable.getCurrentScope() > scope) {
+            variablesTable.exitScope();
+        }
+        skipStatement(statementMark, stopAtVoid);
+    }
+
+    // Skips to the end of the current statement: past its ';', or past the block it opens.
+    // Stops before a '}' that closes the enclosing block, and in the global scope before the next
+    // function declaration
+    private void skipStatement(int statementMark, boolean stopAtVoid) {
+        int depth = 0;
+        while (tokenizer.getCurrentKind() != TokenKind.END) {
+            switch (tokenizer.getCurrentKind()) {
+                case TokenKind.SEMICOLON -> {
+                    tokenizer.advance();
+                    if (depth == 0) {
+                        return;
+                    }
+                }
+                case TokenKind.OPEN_BRACE -> {
+                    depth++;
+                    tokenizer.advance();
+                }
+                case TokenKind.CLOSE_BRACE -> {
+                    if (depth == 0) {
+                        return;
+                    }
+                    depth--;
+                    tokenizer.advance();
+                    if (depth == 0) {
+                        return;
+                    }
+                }
+                case TokenKind.VOID -> {
+                    if (stopAtVoid && depth == 0 && tokenizer.mark() != statementMark) {
+                        return;
+                    }
+                    tokenizer.advance();
+                }
+                default -> tokenizer.advance();
+            }
+        }
+    }
+
     private void advanceFor(int n){
         for (int i = 0; i < n; i++) {
             tokenizer.advance();
@@ -158,6 +290,7 @@ public class VerificationEngine {
      * @throws UninitializedGlobalVariableException - When there is a try to initialize a global variable
      * in an inner scope
      * @throws IllegalInnerBlockException - When there is illegal call in a block
+     * @throws InvalidFunctionParameterException - When the parameter list of a function is illegal
      */
     private void verifyFile() throws NonExistingFunctionException, NumberOfVarsInFuncCallException,
             IllegalBlockInGlobalScopeException, NonExistingVariableException,
@@ -168,39 +301,346 @@ public class VerificationEngine {
             IllegalReturnFormatException, IllegalConditionException, EmptyConditionException,
             IllegalVarTypeInConditionException, UninitializedVariableInConditionException,
             ConstantNonAssignmentException, UninitializedGlobalVariableException,
-            IllegalInnerBlockException {
+            IllegalInnerBlockException, InvalidFunctionParameterException {
 
-        String token = tokenizer.getCurrentToken();
         variablesTable.enterScope();
-        int currentScope;
 
-        while (token != null) {
-            currentScope = variablesTable.getCurrentScope();
-            if (token.equals(FINAL)) {
-                tokenizer.advance();
-                verifyVariableDeclaration(tokenizer.getCurrentToken(), true);
-            } else if (TYPES.contains(token)) {
-                verifyVariableDeclaration(token, false);
-            } else if (token.equals(VOID)) {
-                verifyFunctionDeclaration();
-            } else if ( currentScope == GLOBAL_SCOPE &&
-                    (variablesTable.isVariableDeclared(token) != VARIABLE_NOT_DECLARED)) {
-                verifyVariableAssignment();
-            } else if (functionTable.hasFunction(token)) {
-                tokenizer.lookAhead();
-                if (tokenizer.getCurrentToken().equals(BRACKET_OPENING)) {
-                    throw new CallFunctionFromGlobalException(token);
+        while (tokenizer.getCurrentKind() != TokenKind.END) {
+            verifyGlobalScopeStatementOrRecover();
+        }
+    }
+
+    // Verifies the next statement or function declaration of the global scope, and in the
+    // all-errors mode recovers from its error
+    private void verifyGlobalScopeStatementOrRecover() throws NonExistingFunctionException,
+            NumberOfVarsInFuncCallException, IllegalBlockInGlobalScopeException,
+            NonExistingVariableException, InvalidVariableAssignmentException,
+            VariableAlreadyDeclaredException, InvalidVariableNameException, InvalidValueTypeException,
+            InvalidVariableDeclarationException, ConstantAssignmentException, GlobalScopeException,
+            CallFunctionFromGlobalException, FinalReturnException, InnerMethodDeclarationException,
+            IllegalReturnFormatException, IllegalConditionException, EmptyConditionException,
+            IllegalVarTypeInConditionException, UninitializedVariableInConditionException,
+            ConstantNonAssignmentException, UninitializedGlobalVariableException,
+            IllegalInnerBlockException, InvalidFunctionParameterException {
+        int statementMark = tokenizer.mark();
+        try {
+            verifyGlobalScopeStatement();
+        } catch (VerificationException | IllegalArgumentException e) {
+            if (!allErrors) {
+                throw e;
+            }
+            recover(e, statementMark, GLOBAL_SCOPE, true);
+        }
+    }
+
+    // Verifies the file like verifyFile, but the global scope is verified first and the function
+    // declarations are forked as they are met, every one with a snapshot of the global scope at
+    // its declaration. A function body changes nothing in the global scope once it is exited, so
+    // the results are merged in source order into the results of verifyFile. The global scope
+    // assumes every function ends at the closing brace of its body, and if a function that is
+    // verified without stopping the file ends elsewhere, the file is verified again by verifyFile
+    private void verifyFileInParallel() throws VerificationException {
+        int fileMark = tokenizer.mark();
+        ArrayList<FunctionTask> functions = new ArrayList<>();
+        RuntimeException globalCrash = null;
+        VerificationException globalError = null;
+
+        if (functionCache != null) {
+            modeDigest = newDigest();
+            modeDigest.update((byte) (allErrors ? 1 : 0));
+        }
+        variablesTable.enterScope();
+        // Nothing after a function that stops the file is needed
+        while (tokenizer.getCurrentKind() != TokenKind.END && !isFunctionStopped) {
+            if (tokenizer.getCurrentKind() == TokenKind.VOID) {
+                int mark = tokenizer.mark();
+                SymbolTable globalScope = variablesTable.snapshotGlobalScope();
+                skipFunction();
+                FunctionTask function = new FunctionTask(mark, tokenizer.mark(), globalScope,
+                        diagnostics.size());
+                function.fork();
+                functions.add(function);
+                continue;
+            }
+            try {
+                verifyGlobalScopeStatementOrRecover();
+            } catch (VerificationException e) {
+                globalError = e;
+                break;
+            } catch (RuntimeException e) {
+                globalCrash = e;
+                break;
+            }
+        }
+
+        ArrayList<Diagnostic> merged = new ArrayList<>();
+        int globalDiagnostics = 0;
+        for (int i = 0; i < functions.size(); i++) {
+            FunctionTask function = functions.get(i);
+            merged.addAll(diagnostics.subList(globalDiagnostics, function.diagnosticsBefore));
+            globalDiagnostics = function.diagnosticsBefore;
+            function.join();
+            countSymbols(function.engine.variablesTable);
+            merged.addAll(function.engine.diagnostics);
+            if (function.crash != null || function.error != null ||
+                    function.endMark != function.expectedEndMark) {
+                cancelFunctions(functions, i + 1);
+                if (function.crash != null) {
+                    throw function.crash;
+                } else if (function.error != null) {
+                    throw function.error;
                 }
-            } else if (token.equals(WHILE) || token.equals(IF)) {
-                throw new IllegalBlockInGlobalScopeException(token);
-            } else if (tokenizer.isIdentifier(token)) {
-                throw new NonExistingVariableException(token);
-            } else if (token.equals(BRACE_CLOSING)) {
+                tokenizer.reset(fileMark);
+                countSymbols(variablesTable);
+                variablesTable = new SymbolTable();
+                diagnostics = new ArrayList<>();
+                verifyFile();
+                return;
+            }
+        }
+        if (globalCrash != null) {
+            throw globalCrash;
+        } else if (globalError != null) {
+            throw globalError;
+        }
+        merged.addAll(diagnostics.subList(globalDiagnostics, diagnostics.size()));
+        diagnostics = merged;
+    }
+
+    // Skips a function declaration, from its 'void' to the closing brace of its body
+    private void skipFunction() {
+        while (tokenizer.getCurrentKind() != TokenKind.OPEN_BRACE &&
+                tokenizer.getCurrentKind() != TokenKind.END) {
+            tokenizer.advance();
+        }
+        int depth = 0;
+        while (tokenizer.getCurrentKind() != TokenKind.END) {
+            if (tokenizer.getCurrentKind() == TokenKind.OPEN_BRACE) {
+                depth++;
+            } else if (tokenizer.getCurrentKind() == TokenKind.CLOSE_BRACE && --depth == 0) {
+                return;
+            }
+            tokenizer.advance();
+        }
+    }
+
+    // Cancels the function tasks from the given index, their results are not needed
+    private static void cancelFunctions(ArrayList<FunctionTask> functions, int from) {
+        for (int i = from; i < functions.size(); i++) {
+            functions.get(i).cancel(false);
+        }
+    }
+
+    // Records the verification of a function that started at a mark as a Flight Recorder event,
+    // if the event is enabled
+    private void commitFunctionEvent(FunctionVerificationEvent event, int mark) {
+        if (event == null || !event.shouldCommit()) {
+            return;
+        }
+        // The function ends on its closing brace, or on the token its error was found at
+        int endMark = Math.min(tokenizer.mark(), tokenizer.getTokensCount() - 1);
+        event.lastLine = tokenizer.getCurrentLine();
+        event.tokensCount = endMark - mark + 1;
+        Tokenizer function = tokenizer.newCursor();
+        function.reset(mark);
+        event.firstLine = function.getCurrentLine();
+        function.advance();
+        event.name = function.getCurrentToken();
+        event.commit();
+    }
+
+    // Adds the counts of a symbol table, if the symbols are counted
+    private void countSymbols(SymbolTable table) {
+        if (symbolCounts != null) {
+            symbolCounts.add(table);
+        }
+    }
+
+    // Looks up the signature of a function, and records the lookup if lookups are recorded
+    private FunctionSignature lookupFunction(String functionName) {
+        FunctionSignature signature = functionTable.getFunctionSignature(functionName);
+        if (functionCalls != null) {
+            functionCalls.putIfAbsent(functionName, signature);
+        }
+        return signature;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Copies a digest, with all the data it was given so far
+    private static MessageDigest copyDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Verifies a single function declaration, the way verifyFile verifies it, and keeps where it
+    // ends and how it stopped the file, if it did. With a function cache, the result of the
+    // function is taken from the cache if it is still valid, and kept in the cache otherwise
+    private class FunctionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int mark;
+        private final int expectedEndMark;
+        private final int diagnosticsBefore;
+        private final VerificationEngine engine;
+        private int endMark;
+        private VerificationException error;
+        private RuntimeException crash;
+
+        FunctionTask(int mark, int expectedEndMark, SymbolTable globalScope,
+                     int diagnosticsBefore) {
+            this.mark = mark;
+            this.expectedEndMark = expectedEndMark;
+            this.diagnosticsBefore = diagnosticsBefore;
+            this.engine = new VerificationEngine(tokenizer.newCursor(), globalScope,
+                    functionTable, allErrors);
+        }
+
+        @Override
+        protected void compute() {
+            engine.tokenizer.reset(mark);
+            ByteBuffer key = null;
+            HashMap<String, Integer> globalReads = null;
+            int firstLine = engine.tokenizer.getCurrentLine();
+            if (functionCache != null) {
+                key = functionKey();
+                FunctionCache.Result cached = functionCache.get(key);
+                if (cached != null && isValid(cached)) {
+                    for (Diagnostic diagnostic : cached.getDiagnostics()) {
+                        engine.diagnostics.add(diagnostic.moveLines(firstLine));
+                    }
+                    error = cached.getError();
+                    crash = cached.getCrash();
+                    isFunctionStopped |= error != null || crash != null;
+                    endMark = expectedEndMark;
+                    return;
+                }
+                globalReads = new HashMap<>();
+                engine.variablesTable.recordGlobalReads(globalReads);
+                engine.functionCalls = new HashMap<>();
+            }
+            try {
+                engine.verifyGlobalScopeStatementOrRecover();
+            } catch (VerificationException e) {
+                error = e;
+                isFunctionStopped = true;
+            } catch (RuntimeException e) {
+                crash = e;
+                isFunctionStopped = true;
+            }
+            endMark = engine.tokenizer.mark();
+            // A function that does not end where the global scope expects it is verified again
+            // with the whole file
+            if (key != null && (error != null || crash != null || endMark == expectedEndMark)) {
+                engine.variablesTable.recordGlobalReads(null);
+                ArrayList<Diagnostic> relativeDiagnostics = new ArrayList<>();
+                for (Diagnostic diagnostic : engine.diagnostics) {
+                    relativeDiagnostics.add(diagnostic.moveLines(-firstLine));
+                }
+                functionCache.put(key, new FunctionCache.Result(globalReads, engine.functionCalls,
+                        relativeDiagnostics, error, crash));
+            }
+        }
+
+        // The key of the function: the all-errors mode and the tokens of the function
+        private ByteBuffer functionKey() {
+            MessageDigest digest = copyDigest(modeDigest);
+            tokenizer.digestTokens(mark, expectedEndMark, digest);
+            return ByteBuffer.wrap(digest.digest());
+        }
+
+        // Checks that every global variable the cached function read resolves as it did, and that
+        // every function it calls has the signature it had, so a changed signature invalidates
+        // only the functions with calls to it
+        private boolean isValid(FunctionCache.Result cached) {
+            for (Map.Entry<String, Integer> read : cached.getGlobalReads().entrySet()) {
+                if (engine.variablesTable.lookupVariable(read.getKey()) != read.getValue()) {
+                    return false;
+                }
+            }
+            for (Map.Entry<String, FunctionSignature> call : cached.getFunctionCalls().entrySet()) {
+                if (!Objects.equals(functionTable.getFunctionSignature(call.getKey()),
+                        call.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Verifies the next statement or function declaration of the global scope
+    private void verifyGlobalScopeStatement() throws NonExistingFunctionException,
+            NumberOfVarsInFuncCallException, IllegalBlockInGlobalScopeException,
+            NonExistingVariableException, InvalidVariableAssignmentException,
+            VariableAlreadyDeclaredException, InvalidVariableNameException, InvalidValueTypeException,
+            InvalidVariableDeclarationException, ConstantAssignmentException, GlobalScopeException,
+            CallFunctionFromGlobalException, FinalReturnException, InnerMethodDeclarationException,
+            IllegalReturnFormatException, IllegalConditionException, EmptyConditionException,
+            IllegalVarTypeInConditionException, UninitializedVariableInConditionException,
+            ConstantNonAssignmentException, UninitializedGlobalVariableException,
+            IllegalInnerBlockException, InvalidFunctionParameterException {
+        switch (tokenizer.getCurrentKind()) {
+            case TokenKind.FINAL -> {
                 tokenizer.advance();
-            } else {
-                    throw new GlobalScopeException();
+                verifyVariableDeclaration(tokenizer.getCurrentKind(), true);
+            }
+            case TokenKind.INT, TokenKind.DOUBLE, TokenKind.BOOLEAN, TokenKind.CHAR,
+                    TokenKind.STRING -> verifyVariableDeclaration(tokenizer.getCurrentKind(), false);
+            case TokenKind.VOID -> {
+                FunctionVerificationEvent event = FlightRecorder.isInitialized() ?
+                        new FunctionVerificationEvent() : null;
+                int mark = tokenizer.mark();
+                if (event != null) {
+                    event.begin();
+                }
+                try {
+                    verifyFunctionDeclaration();
+                } finally {
+                    commitFunctionEvent(event, mark);
+                }
+            }
+            case TokenKind.CLOSE_BRACE -> tokenizer.advance();
+            default -> verifyGlobalStatement(tokenizer.getCurrentToken());
+        }
+    }
+
+    /**
+     * Verifies a statement in the global scope that is not a declaration
+     * @param token : String - The first token of the statement
+     * @throws NonExistingVariableException - When there is access to non-existing variable
+     * @throws IllegalBlockInGlobalScopeException - When there is an if/while block in global scope
+     * @throws CallFunctionFromGlobalException - When there is a function call in the global scope
+     * @throws GlobalScopeException - When there is an illegal call in the global scope
+     */
+    private void verifyGlobalStatement(String token) throws NonExistingVariableException,
+            IllegalBlockInGlobalScopeException, CallFunctionFromGlobalException, GlobalScopeException,
+            InvalidVariableAssignmentException, VariableAlreadyDeclaredException,
+            InvalidVariableNameException, InvalidVariableDeclarationException, InvalidValueTypeException,
+            ConstantAssignmentException, ConstantNonAssignmentException,
+            UninitializedGlobalVariableException {
+        int kind = tokenizer.getCurrentKind();
+        if (variablesTable.getCurrentScope() == GLOBAL_SCOPE &&
+                (variablesTable.isVariableDeclared(token) != VARIABLE_NOT_DECLARED)) {
+            verifyVariableAssignment();
+        } else if (lookupFunction(token) != null) {
+            tokenizer.advance();
+            if (tokenizer.getCurrentKind() == TokenKind.OPEN_PARENTHESIS) {
+                throw new CallFunctionFromGlobalException(token);
             }
-            token = tokenizer.getCurrentToken();
+        } else if (kind == TokenKind.WHILE || kind == TokenKind.IF) {
+            throw new IllegalBlockInGlobalScopeException(token);
+        } else if (Tokenizer.isIdentifier(token)) {
+            throw new NonExistingVariableException(token);
+        } else {
+            throw new GlobalScopeException();
         }
     }
 
@@ -227,6 +667,7 @@ public class VerificationEngine {
      * @throws UninitializedGlobalVariableException - When there is a try to initialize a global variable
      * in an inner scope
      * @throws IllegalInnerBlockException - When there is illegal call in a block
+     * @throws InvalidFunctionParameterException - When the parameter list is illegal
      */
     private void verifyFunctionDeclaration() throws
             NonExistingFunctionException, InvalidVariableAssignmentException,
@@ -235,7 +676,8 @@ public class VerificationEngine {
             FinalReturnException, InnerMethodDeclarationException, IllegalReturnFormatException,
             IllegalConditionException, EmptyConditionException, IllegalVarTypeInConditionException,
             UninitializedVariableInConditionException, ConstantNonAssignmentException,
-            UninitializedGlobalVariableException, IllegalInnerBlockException {
+            UninitializedGlobalVariableException, IllegalInnerBlockException,
+            InvalidFunctionParameterException {
 
         variablesTable.enterScope();
         boolean returnFlag = false;
@@ -245,18 +687,24 @@ public class VerificationEngine {
         verifyFunctionDeclarationVariables();
 
         advanceFor(TWO);
-        String currToken = tokenizer.getCurrentToken();
 
-        while (!currToken.equals(BRACE_CLOSING))
+        while (tokenizer.getCurrentKind() != TokenKind.CLOSE_BRACE)
         {
-            if (currToken.equals(RETURN)) {
-                // Return statement
-                returnFlag = verifyReturnStatement();
-            } else {
-                verifyInnerPartOfBlock();
+            int statementMark = tokenizer.mark();
+            int scope = variablesTable.getCurrentScope();
+            try {
+                if (tokenizer.getCurrentKind() == TokenKind.RETURN) {
+                    // Return statement
+                    returnFlag = verifyReturnStatement();
+                } else {
+                    verifyInnerPartOfBlock();
+                }
+            } catch (VerificationException | IllegalArgumentException e) {
+                if (!allErrors) {
+                    throw e;
+                }
+                recover(e, statementMark, scope, false);
             }
-
-            currToken = tokenizer.getCurrentToken();
         }
 
         // Ensure we have last return;
@@ -272,25 +720,35 @@ public class VerificationEngine {
      * @throws VariableAlreadyDeclaredException - When there is a double declaration of
      * variables with the same name
      * @throws ConstantNonAssignmentException - When there is a constant declaration without assignment
+     * @throws InvalidFunctionParameterException - When the parameter list is illegal
      */
     private void verifyFunctionDeclarationVariables() throws ConstantNonAssignmentException,
-            VariableAlreadyDeclaredException {
+            VariableAlreadyDeclaredException, InvalidFunctionParameterException {
         boolean finalFlag = false;
-        String paramType, paramName;
+        int paramTypeKind;
+        String paramName;
+        String declarationLine = tokenizer.getCurrentLineText();
 
-        while (!this.tokenizer.getCurrentToken().equals(BRACKET_CLOSING)){
-            paramType = tokenizer.getCurrentToken();
-            if (paramType.equals(FINAL)){
+        while (tokenizer.getCurrentKind() != TokenKind.CLOSE_PARENTHESIS){
+            paramTypeKind = tokenizer.getCurrentKind();
+            if (tokenizer.getCurrentKind() == TokenKind.FINAL){
                 finalFlag = true;
                 tokenizer.advance();
-                paramType = tokenizer.getCurrentToken();
+                paramTypeKind = tokenizer.getCurrentKind();
+            }
+            // A declaration the preprocessor did not parse may have any tokens in its parameter
+            // list, and may not even close it
+            if (!TokenKind.isType(paramTypeKind)) {
+                throw new InvalidFunctionParameterException(declarationLine);
             }
             tokenizer.advance();
             paramName = tokenizer.getCurrentToken();
-            variablesTable.declareVariable(paramName, paramType, null, finalFlag, true);
+            variablesTable.declareVariable(paramName, paramTypeKind, false, finalFlag, true);
             tokenizer.advance();
-            if (tokenizer.getCurrentToken().equals(COMMA)){
+            if (tokenizer.getCurrentKind() == TokenKind.COMMA){
                 tokenizer.advance();
+            } else if (tokenizer.getCurrentKind() != TokenKind.CLOSE_PARENTHESIS) {
+                throw new InvalidFunctionParameterException(declarationLine);
             }
         }
     }
@@ -325,27 +783,29 @@ public class VerificationEngine {
             EmptyConditionException, NumberOfVarsInFuncCallException, IllegalVarTypeInConditionException,
             UninitializedVariableInConditionException, IllegalInnerBlockException, IllegalReturnFormatException {
 
-        String currToken = tokenizer.getCurrentToken();
-
-        if (TYPES.contains(currToken)  || currToken.equals(FINAL)) {
-            if (currToken.equals(FINAL)){
+        switch (tokenizer.getCurrentKind()) {
+            case TokenKind.FINAL -> {
                 tokenizer.advance();
-                verifyVariableDeclaration(tokenizer.getCurrentToken(), true);
-            } else {
-                verifyVariableDeclaration(currToken, false);
+                verifyVariableDeclaration(tokenizer.getCurrentKind(), true);
+            }
+            case TokenKind.INT, TokenKind.DOUBLE, TokenKind.BOOLEAN, TokenKind.CHAR,
+                    TokenKind.STRING -> verifyVariableDeclaration(tokenizer.getCurrentKind(), false);
+            case TokenKind.IF -> {
+                variablesTable.enterScope();
+                verifyBlock(IF);
+                variablesTable.exitScope();
+            }
+            case TokenKind.WHILE -> {
+                variablesTable.enterScope();
+                verifyBlock(WHILE);
+                variablesTable.exitScope();
+            }
+            case TokenKind.VOID -> throw new InnerMethodDeclarationException();
+            default -> {
+                if (!varOrFunctionCallCase(tokenizer.getCurrentToken())) {
+                    throw new IllegalInnerBlockException();
+                }
             }
-        } else if (currToken.equals(IF)) {
-            variablesTable.enterScope();
-            verifyBlock(IF);
-            variablesTable.exitScope();
-        } else if (currToken.equals(WHILE)) {
-            variablesTable.enterScope();
-            verifyBlock(WHILE);
-            variablesTable.exitScope();
-        } else if (currToken.equals(VOID)) {
-            throw new InnerMethodDeclarationException();
-        } else if (!varOrFunctionCallCase(currToken)) {
-            throw new IllegalInnerBlockException();
         }
     }
 
@@ -372,15 +832,16 @@ public class VerificationEngine {
             InvalidVariableDeclarationException, ConstantAssignmentException, ConstantNonAssignmentException,
             UninitializedGlobalVariableException {
 
-        String nextToken;
+        int nextKind;
 
         if (verifyVariableName(tokenizer.getCurrentToken()).equals(currToken)) {
-            tokenizer.lookAhead();
-            nextToken = tokenizer.getCurrentToken();
+            int mark = tokenizer.mark();
+            tokenizer.advance();
+            nextKind = tokenizer.getCurrentKind();
+            tokenizer.reset(mark);
             // Function call case
-            if (nextToken.equals(BRACKET_OPENING)) {
-                if (functionTable.hasFunction(currToken)) {
-                    tokenizer.retreat();
+            if (nextKind == TokenKind.OPEN_PARENTHESIS) {
+                if (lookupFunction(currToken) != null) {
                     verifyFunctionCall();
                     return true;
                 } else {
@@ -388,7 +849,6 @@ public class VerificationEngine {
                 }
             } else {
                 // Local variable assignment
-                tokenizer.retreat();
                 verifyVariableAssignment();
                 return true;
             }
@@ -431,7 +891,7 @@ public class VerificationEngine {
 
         advanceFor(TWO);
 
-        if (!tokenizer.getCurrentToken().equals(BRACKET_CLOSING)){
+        if (tokenizer.getCurrentKind() != TokenKind.CLOSE_PARENTHESIS){
             verifyBlockCondition(blockType);
         } else {
             throw new EmptyConditionException(blockType);
@@ -439,7 +899,7 @@ public class VerificationEngine {
 
         advanceFor(TWO);
 
-        if (!tokenizer.getCurrentToken().equals(BRACE_CLOSING)) {
+        if (tokenizer.getCurrentKind() != TokenKind.CLOSE_BRACE) {
             verifyInnerPartOfIfOrWhile();
         }
 
@@ -477,18 +937,22 @@ public class VerificationEngine {
             ConstantNonAssignmentException, UninitializedGlobalVariableException,
             IllegalInnerBlockException, IllegalReturnFormatException {
 
-        String currToken = tokenizer.getCurrentToken();
-
-        while (!currToken.equals(BRACE_CLOSING)) {
-
-            if (currToken.equals(RETURN)) {
-                // Return statement
-                verifyReturnFormat();
-            } else {
-                verifyInnerPartOfBlock();
+        while (tokenizer.getCurrentKind() != TokenKind.CLOSE_BRACE) {
+            int statementMark = tokenizer.mark();
+            int scope = variablesTable.getCurrentScope();
+            try {
+                if (tokenizer.getCurrentKind() == TokenKind.RETURN) {
+                    // Return statement
+                    verifyReturnFormat();
+                } else {
+                    verifyInnerPartOfBlock();
+                }
+            } catch (VerificationException | IllegalArgumentException e) {
+                if (!allErrors) {
+                    throw e;
+                }
+                recover(e, statementMark, scope, false);
             }
-
-            currToken = tokenizer.getCurrentToken();
         }
     }
 
@@ -501,15 +965,13 @@ public class VerificationEngine {
      */
     private void verifyBlockCondition(String blockType) throws IllegalVarTypeInConditionException,
             UninitializedVariableInConditionException, IllegalConditionException {
-        String currentToken = tokenizer.getCurrentToken();
-
-        if (currentToken.equals(OR) || currentToken.equals(AND)){
+        if (isAndOrKind(tokenizer.getCurrentKind())){
             throw new IllegalConditionException(blockType);
         }
 
         do {
             verifyBlockConditionCases(blockType);
-        } while (!tokenizer.getCurrentToken().equals(BRACKET_CLOSING));
+        } while (tokenizer.getCurrentKind() != TokenKind.CLOSE_PARENTHESIS);
     }
 
     /**
@@ -523,14 +985,16 @@ public class VerificationEngine {
             UninitializedVariableInConditionException, IllegalConditionException {
 
         String token = tokenizer.getCurrentToken();
-        if (token.equals(OR) || token.equals(AND)) {
+        int kind = tokenizer.getCurrentKind();
+        int variableSlot = variablesTable.lookupVariable(token);
+        if (isAndOrKind(kind)) {
             verifyAndOrCase(blockType);
-        } else if (token.equals(TRUE) || token.equals(FALSE)) {
+        } else if (kind == TokenKind.TRUE || kind == TokenKind.FALSE) {
             // Case 1 : One of the reserved words is true or false.
             tokenizer.advance();
-        } else if (variablesTable.isVariableDeclared(token) > VARIABLE_NOT_DECLARED) {
-                verifyCaseUninitializedVariableInBlockCondition(token, blockType);
-        } else if (handleDoubleValues(token).equals(INVALID_VALUE_TYPE_EXCEPTION)) {
+        } else if (variableSlot != SymbolTable.NO_SLOT) {
+                verifyCaseUninitializedVariableInBlockCondition(variableSlot, token, blockType);
+        } else if (!handleDoubleValues()) {
             // Case 3 : A double or int constant/value (e.g. 5, -3, -21.5).
             throw new IllegalConditionException(blockType);
         } else {
@@ -545,30 +1009,37 @@ public class VerificationEngine {
      */
     private void verifyAndOrCase(String blockType) throws IllegalConditionException {
         tokenizer.advance();
-        String token = tokenizer.getCurrentToken();
-        if (token.equals(OR) || token.equals(AND)) {
+        if (isAndOrKind(tokenizer.getCurrentKind())) {
             tokenizer.advance();
-            token = tokenizer.getCurrentToken();
-            if (token.equals(OR) || token.equals(AND) || token.equals(BRACKET_CLOSING)) {
+            int kind = tokenizer.getCurrentKind();
+            if (isAndOrKind(kind) || kind == TokenKind.CLOSE_PARENTHESIS) {
                 throw new IllegalConditionException(blockType);
             }
         }
     }
 
+    // Checks if a token kind is one of the | or & symbols
+    private static boolean isAndOrKind(int kind) {
+        return kind == TokenKind.OR || kind == TokenKind.AND;
+    }
+
     /**
      * Verifies || or && case
+     * @param variableSlot : int - The slot of the variable of the condition in the symbol table
+     * @param token : String - The name of the variable
      * @param blockType : String - if/while
      * @throws IllegalVarTypeInConditionException - When the condition in if/while is of illegal type
      *      * @throws UninitializedVariableInConditionException - When the condition in if/while is
      *      of illegal type
      */
-    private void verifyCaseUninitializedVariableInBlockCondition(String token, String blockType) throws
+    private void verifyCaseUninitializedVariableInBlockCondition(int variableSlot, String token,
+                                                                 String blockType) throws
             IllegalVarTypeInConditionException, UninitializedVariableInConditionException {
         // Case 2 : An initialized boolean, double or int variable
-        String varType = variablesTable.getType(token);
-        if (!varType.equals(BOOLEAN) && !varType.equals(DOUBLE) && !varType.equals(INT)) {
-            throw new IllegalVarTypeInConditionException(varType, blockType);
-        } else if (variablesTable.getValue(token) == null) {
+        int varTypeKind = variablesTable.getTypeKind(variableSlot);
+        if (!isNumericTypeKind(varTypeKind)) {
+            throw new IllegalVarTypeInConditionException(typeName(varTypeKind), blockType);
+        } else if (!variablesTable.isInitialized(variableSlot)) {
             // Check with nir if a variable without assignment is initialized with null
             throw new UninitializedVariableInConditionException(token, blockType);
         }
@@ -586,7 +1057,7 @@ public class VerificationEngine {
 
         // Check last return
         tokenizer.advance();
-        return (tokenizer.getCurrentToken().equals(BRACE_CLOSING));
+        return (tokenizer.getCurrentKind() == TokenKind.CLOSE_BRACE);
     }
 
     /**
@@ -595,7 +1066,7 @@ public class VerificationEngine {
      */
     private void verifyReturnFormat() throws IllegalReturnFormatException {
         tokenizer.advance();
-        if (!tokenizer.getCurrentToken().equals(EOL_COMMA)){
+        if (tokenizer.getCurrentKind() != TokenKind.SEMICOLON){
             throw new IllegalReturnFormatException();
         }
     }
@@ -624,19 +1095,18 @@ public class VerificationEngine {
     private void verifyFunctionCallVariables(String functionName) throws NumberOfVarsInFuncCallException,
             InvalidValueTypeException {
         int varCounter = 0;
-        HashMap<Integer, String> functionVarsInfo =
-                functionTable.getFunctionVariables(functionName);
+        FunctionSignature signature = lookupFunction(functionName);
         do {
-            varCounter = checkVarValidityInFunctionCall(functionVarsInfo, varCounter, functionName);
-        } while (tokenizer.getCurrentToken().equals(COMMA));
+            varCounter = checkVarValidityInFunctionCall(signature, varCounter, functionName);
+        } while (tokenizer.getCurrentKind() == TokenKind.COMMA);
 
         tokenizer.advance();
     }
 
     /**
      * Verifies variables validity in function call
-     * @param functionVarsInfo : HashMap<Integer, String> - Contains the information about the variable
-     * from the FunctionTable
+     * @param signature : FunctionSignature - The types of the function parameters, from the
+     * FunctionTable
      * @param varCounter : int - Variables counter
      * @param functionName : String - The function name
      * @return int : Variables counter
@@ -644,23 +1114,27 @@ public class VerificationEngine {
      * function call
      * @throws InvalidValueTypeException - When the value of variable is illegal, during assignment
      */
-    private int checkVarValidityInFunctionCall(HashMap<Integer, String> functionVarsInfo, int varCounter,
+    private int checkVarValidityInFunctionCall(FunctionSignature signature, int varCounter,
                                                String functionName) throws
             NumberOfVarsInFuncCallException, InvalidValueTypeException {
         tokenizer.advance();
 
-        if (varCounter == functionVarsInfo.size() && !tokenizer.getCurrentToken().equals(BRACKET_CLOSING)) {
+        boolean isClosing = tokenizer.getCurrentKind() == TokenKind.CLOSE_PARENTHESIS;
+        int parametersCount = signature.getParametersCount();
+        if (varCounter == parametersCount && !isClosing) {
             throw new NumberOfVarsInFuncCallException(MORE, functionName);
         }
 
-        if ((varCounter < functionVarsInfo.size() && tokenizer.getCurrentToken().equals(BRACKET_CLOSING))) {
+        if (varCounter < parametersCount && isClosing) {
             throw new NumberOfVarsInFuncCallException(FEWER, functionName);
         }
 
+        // A call without arguments to a function without parameters
+        if (isClosing) {
+            return varCounter;
+        }
 
-        String currIndexType = functionVarsInfo.get(varCounter);
-
-        verifyTypeFunctionCall(tokenizer.getCurrentToken(), currIndexType);
+        verifyTypeFunctionCall(signature.getParameterTypeKind(varCounter));
 
         varCounter++;
         tokenizer.advance();
@@ -669,104 +1143,106 @@ public class VerificationEngine {
 
     /**
      * Verifies the type of the variable in a function call
-     * @param currentToken : String - The current token
-     * @param currIndexType : String - The type of the variable
+     * @param currIndexTypeKind : int - The token kind of the type of the variable
      * @throws InvalidValueTypeException - When the value of variable is illegal, during assignment
      */
-    private void verifyTypeFunctionCall(String currentToken, String currIndexType)
-            throws InvalidValueTypeException {
-        switch (currIndexType) {
-            case INT:{
-                handleIntValue(FUNCTION_CALL_VAR, tokenizer.getCurrentToken());
+    private void verifyTypeFunctionCall(int currIndexTypeKind) throws InvalidValueTypeException {
+        switch (currIndexTypeKind) {
+            case TokenKind.INT:{
+                handleIntValue(FUNCTION_CALL_VAR);
                 break;
             }
 
-            case DOUBLE:{
-                if (handleDoubleValues(currentToken).equals(INVALID_VALUE_TYPE_EXCEPTION)){
+            case TokenKind.DOUBLE:{
+                if (!handleDoubleValues()){
                     throw new InvalidValueTypeException(FUNCTION_CALL_VAR, DOUBLE);
                 }
                 break;
             }
 
-            case STRING: {
+            case TokenKind.STRING: {
                 handleStringValues(FUNCTION_CALL_VAR);
                 break;
             }
 
-            case BOOLEAN: {
-                handleBooleanValues(FUNCTION_CALL_VAR, currentToken);
+            case TokenKind.BOOLEAN: {
+                handleBooleanValues(FUNCTION_CALL_VAR);
                 break;
             }
 
-            case CHAR: {
+            case TokenKind.CHAR: {
                 handleCharValues(FUNCTION_CALL_VAR);
                 break;
             }
         }
     }
 
-    private String handleIntValue(String variableName, String variableValue)
+    private void handleIntValue(String variableName)
             throws InvalidValueTypeException {
 
-        if (validIntPattern.matcher(tokenizer.getCurrentToken()).matches()) {
-            tokenizer.lookAhead();
-            if (tokenizer.getCurrentToken().equals(DOT)){
+        if (tokenizer.isIntLiteral()) {
+            int mark = tokenizer.mark();
+            tokenizer.advance();
+            if (tokenizer.getCurrentKind() == TokenKind.DOT){
                 throw new InvalidValueTypeException(variableName, INT);
             } else {
-                tokenizer.retreat();
+                tokenizer.reset(mark);
             }
         } else {
             throw new InvalidValueTypeException(variableName, INT);
         }
-        return variableValue;
     }
 
 
-    private void verifyVariableDeclaration(String token, boolean isConstant)
+    private void verifyVariableDeclaration(int typeKind, boolean isConstant)
             throws VariableAlreadyDeclaredException, InvalidVariableNameException, InvalidValueTypeException,
             InvalidVariableDeclarationException, ConstantAssignmentException, ConstantNonAssignmentException,
             UninitializedGlobalVariableException {
-        // Whether final or not, now the token is on the type
-        switch (token) {
-            case INT:
-                verifyVariable(INT, validIntPattern, isConstant);
-                break;
-            case CHAR:
-                verifyVariable(CHAR, validCharPattern, isConstant);
-                break;
-            case BOOLEAN:
-                verifyVariable(BOOLEAN, null, isConstant);
-                break;
-            case DOUBLE:
-                verifyVariable(DOUBLE, validDoublePattern, isConstant);
-                break;
-            case STRING:
-                verifyVariable(STRING, validStringPattern, isConstant);
-                break;
+        // Whether final or not, now the token is on the type, and a token that is not a type
+        // declares nothing
+        if (TokenKind.isType(typeKind)) {
+            verifyVariable(typeKind, isConstant);
         }
+    }
 
+    // Returns the name of a type, given the token kind of its keyword, which must be a type
+    private static String typeName(int typeKind) {
+        return switch (typeKind) {
+            case TokenKind.INT -> INT;
+            case TokenKind.CHAR -> CHAR;
+            case TokenKind.BOOLEAN -> BOOLEAN;
+            case TokenKind.DOUBLE -> DOUBLE;
+            case TokenKind.STRING -> STRING;
+            default -> throw new IllegalArgumentException(String.format(NOT_A_TYPE, typeKind));
+        };
+    }
 
+    // Checks if a type, given the token kind of its keyword, takes numeric values: int, double
+    // or boolean
+    private static boolean isNumericTypeKind(int typeKind) {
+        return typeKind == TokenKind.INT || typeKind == TokenKind.DOUBLE ||
+                typeKind == TokenKind.BOOLEAN;
     }
 
     private void verifyVariableAssignment() throws InvalidVariableAssignmentException,
             VariableAlreadyDeclaredException, InvalidVariableNameException,
             InvalidVariableDeclarationException, InvalidValueTypeException, ConstantAssignmentException,
             ConstantNonAssignmentException, UninitializedGlobalVariableException {
-        while (!tokenizer.getCurrentToken().equals(EOL_COMMA)) {
+        while (tokenizer.getCurrentKind() != TokenKind.SEMICOLON) {
             String variableName = tokenizer.getCurrentToken();
-            variablesTable.findVariableScope(variableName); // throws if variable not declared
-            String type = variablesTable.getType(variableName);
-            boolean isConstant = variablesTable.isConstant(variableName);
+            // Throws if variable not declared
+            int variableSlot = variablesTable.resolveVariable(variableName);
+            int typeKind = variablesTable.getTypeKind(variableSlot);
+            boolean isConstant = variablesTable.isConstant(variableSlot);
             variableName = verifyVariableName(tokenizer.getCurrentToken());
             tokenizer.advance(); // Move to "="
 
             // check if variables were not assigned (e.g: a = ;, a = ,)
-            if (verifyEqualSign(variableName, type, isConstant) != HAS_VALUE) {
+            if (verifyEqualSign(variableName, typeKind, isConstant) != HAS_VALUE) {
                 throw new InvalidVariableAssignmentException(variableName);
             }
-            Pattern valuePattern = getPattern(type);
             boolean isAssignment = true;
-            int postAssignmentStatus = processVariableWithValue(variableName, type, valuePattern, isConstant,
+            int postAssignmentStatus = processVariableWithValue(variableName, typeKind, isConstant,
                     isAssignment);
             if (postAssignmentStatus == END_OF_LINE) {
                 tokenizer.advance();
@@ -775,30 +1251,20 @@ public class VerificationEngine {
         }
     }
 
-    private Pattern getPattern(String type) {
-        return switch (type) {
-            case INT -> validIntPattern;
-            case CHAR -> validCharPattern;
-            case DOUBLE -> validDoublePattern;
-            case STRING -> validStringPattern;
-            default -> null;
-        };
-    }
-
-    private void verifyVariable(String type, Pattern valuePattern, boolean isConstant)
+    private void verifyVariable(int typeKind, boolean isConstant)
             throws InvalidVariableNameException, InvalidVariableDeclarationException,
             InvalidValueTypeException, ConstantAssignmentException, VariableAlreadyDeclaredException,
             ConstantNonAssignmentException, UninitializedGlobalVariableException {
 
-        while (!tokenizer.getCurrentToken().equals(EOL_COMMA)) {
+        while (tokenizer.getCurrentKind() != TokenKind.SEMICOLON) {
             // Validate and process the variable name
             tokenizer.advance();
             String variableName = verifyVariableName(tokenizer.getCurrentToken());
             tokenizer.advance(); // Move to "="
-            int valueStatus = verifyEqualSign(variableName, type, isConstant);
+            int valueStatus = verifyEqualSign(variableName, typeKind, isConstant);
             if (valueStatus == HAS_VALUE) {
                 boolean isAssignment = false;
-                int postAssignmentStatus = processVariableWithValue(variableName, type, valuePattern,
+                int postAssignmentStatus = processVariableWithValue(variableName, typeKind,
                         isConstant, isAssignment);
                 if (postAssignmentStatus == END_OF_LINE) {
                     tokenizer.advance();
@@ -813,7 +1279,7 @@ public class VerificationEngine {
         }
     }
 
-    private int processVariableWithValue(String variableName, String type, Pattern valuePattern,
+    private int processVariableWithValue(String variableName, int typeKind,
                                          boolean isConstant, boolean isAssignment)
             throws InvalidValueTypeException, ConstantAssignmentException,
             InvalidVariableDeclarationException, VariableAlreadyDeclaredException,
@@ -822,29 +1288,29 @@ public class VerificationEngine {
 
         String variableValue = tokenizer.getCurrentToken();
 
-        // Handle references if the value matches a variable pattern
-        String sign = EMPTY_STRING;
-        if (variablesTable.isVariableDeclared(variableValue) != 0) {
-            variableValue = resolveVariableReference(variableValue);
+        // Handle references if the value matches a variable pattern, the variable is initialized
+        // as the referenced one
+        boolean isInitialized = true;
+        int referenceSlot = variablesTable.lookupVariable(variableValue);
+        if (referenceSlot != SymbolTable.NO_SLOT) {
+            isInitialized = variablesTable.isInitialized(referenceSlot);
         } else {
-            if (type.equals(INT) || type.equals(DOUBLE) || type.equals(BOOLEAN)) {
-                if (variableValue.equals(PLUS) || variableValue.equals(MINUS)) {
-                    sign = variableValue;
+            if (isNumericTypeKind(typeKind)) {
+                int kind = tokenizer.getCurrentKind();
+                if (kind == TokenKind.PLUS || kind == TokenKind.MINUS) {
                     tokenizer.advance();
                     variableValue = tokenizer.getCurrentToken();
                 }
             }
-            variableValue = validateVariableValue(variableName, type, valuePattern, variableValue);
-            sign += variableValue;
-            variableValue = sign;
+            validateVariableValue(variableName, typeKind, variableValue);
         }
 
         // Add the variable to the symbol table
         if (isAssignment) {
-            variablesTable.assignValue(variableName, variableValue);
+            variablesTable.assignValue(variableName, isInitialized);
         }
         else {
-            variablesTable.declareVariable(variableName, type, variableValue, isConstant, false);
+            variablesTable.declareVariable(variableName, typeKind, isInitialized, isConstant, false);
         }
 
         tokenizer.advance(); // Move past the value
@@ -852,157 +1318,143 @@ public class VerificationEngine {
         return verifyManyVariableDeclarations(variableName, tokenizer.getCurrentToken());
     }
 
-    private String resolveVariableReference(String variableValue) {
-        return variablesTable.getValue(variableValue);
-    }
-
-    private String  validateVariableValue(String variableName, String type, Pattern valuePattern,
-                                          String variableValue)
+    private void validateVariableValue(String variableName, int typeKind, String variableValue)
             throws InvalidValueTypeException {
-        switch (type) {
-            case INT:
-                return handleIntValue(variableName, variableValue);
-            case DOUBLE:
-                String result =  handleDoubleValues(variableValue);
-                if (result.equals(INVALID_VALUE_TYPE_EXCEPTION)){
+        switch (typeKind) {
+            case TokenKind.INT:
+                handleIntValue(variableName);
+                break;
+            case TokenKind.DOUBLE:
+                if (!handleDoubleValues()){
                     throw new InvalidValueTypeException(variableName, DOUBLE);
                 }
-            case CHAR:
-                return handleCharValues(variableValue);
-            case STRING:
-                return handleStringValues(variableName);
-            case BOOLEAN:
-                return handleBooleanValues(variableName, variableValue);
-            default:
-                if (!valuePattern.matcher(variableValue).matches()) {
-                    throw new InvalidValueTypeException(variableName, type);
-                }
-                return variableValue;
+            case TokenKind.CHAR:
+                handleCharValues(variableValue);
+                break;
+            case TokenKind.STRING:
+                handleStringValues(variableName);
+                break;
+            case TokenKind.BOOLEAN:
+                handleBooleanValues(variableName);
+                break;
             }
     }
 
-    private String handleStringValues(String variableName) throws InvalidValueTypeException {
-
-        String result = EMPTY_STRING;
+    private void handleStringValues(String variableName) throws InvalidValueTypeException {
 
-        if (!tokenizer.getCurrentToken().equals(STRING_QUOTE)) {
+        if (tokenizer.getCurrentKind() != TokenKind.QUOTE) {
             //raise error
             throw new InvalidValueTypeException(variableName, STRING);
         }
         tokenizer.advance();
-        String variableValue = tokenizer.getCurrentToken();
-        if (!variableValue.equals(STRING_QUOTE)) {
-            result = variableValue;
+        if (tokenizer.getCurrentKind() != TokenKind.QUOTE) {
             tokenizer.advance();
         }
-        if (!tokenizer.getCurrentToken().equals(STRING_QUOTE)) {
+        if (tokenizer.getCurrentKind() != TokenKind.QUOTE) {
             //raise error
             throw new InvalidValueTypeException(variableName, STRING);
         }
-        return result;
     }
 
-    private String handleCharValues(String variableName) throws InvalidValueTypeException {
-        if (!tokenizer.getCurrentToken().equals(CHAR_QUOTE))
+    private void handleCharValues(String variableName) throws InvalidValueTypeException {
+        if (tokenizer.getCurrentKind() != TokenKind.APOSTROPHE)
         {
             //raise error
             throw new InvalidValueTypeException(variableName, CHAR);
         }
         tokenizer.advance();
-        String result = tokenizer.getCurrentToken();
         if (tokenizer.getCurrentToken().length() != 1){
             throw new InvalidValueTypeException(variableName, CHAR);
         }
         tokenizer.advance();
-        if (!tokenizer.getCurrentToken().equals(CHAR_QUOTE))
+        if (tokenizer.getCurrentKind() != TokenKind.APOSTROPHE)
         {
             //raise error
             throw new InvalidValueTypeException(variableName, CHAR);
         }
-        return result;
-    }
-
-    private String handleDoubleValues(String variableValue) {
-        String tmp = variableValue;
-        String result = tmp;
-        if (validIntPattern.matcher(tmp).matches()) {
-            tokenizer.lookAhead();
-            tmp = tokenizer.getCurrentToken();
-            if (tmp.equals(DOT)) {
-                result += tmp;
-                tokenizer.lookAhead();
-                tmp = tokenizer.getCurrentToken();
-                if (validIntPattern.matcher(tmp).matches()) {
-                    result += tmp;
-                } else if (AFTER_VARIABLE_VALUE_SYMBOLS.contains(tmp)) {
-                    tokenizer.retreat();
-                } else {
-                    return INVALID_VALUE_TYPE_EXCEPTION;
+    }
+
+    // Reads a double value that starts at the current token (e.g. 5, 5., 5.5 or .5), spanning
+    // its int and dot tokens, and leaves the tokenizer on its last token. Returns false if it is
+    // not a valid double
+    private boolean handleDoubleValues() {
+        if (tokenizer.isIntLiteral()) {
+            int integerMark = tokenizer.mark();
+            tokenizer.advance();
+            if (tokenizer.getCurrentKind() == TokenKind.DOT) {
+                // The value ends at the dot unless a fraction follows it (e.g. 5.)
+                int dotMark = tokenizer.mark();
+                tokenizer.advance();
+                if (tokenizer.isIntLiteral()) {
+                    return true;
+                } else if (isAfterValueKind(tokenizer.getCurrentKind())) {
+                    tokenizer.reset(dotMark);
+                    return true;
                 }
-            } else if (!AFTER_VARIABLE_VALUE_SYMBOLS.contains(tmp)) {
-                return INVALID_VALUE_TYPE_EXCEPTION;
-            } else {
-                tokenizer.retreat();
+                return false;
+            } else if (!isAfterValueKind(tokenizer.getCurrentKind())) {
+                return false;
             }
-        } else if (tmp.equals(DOT)) {
-            tokenizer.lookAhead();
-            tmp = tokenizer.getCurrentToken();
-            if (validIntPattern.matcher(tmp).matches()) {
-                result += tmp;
-            } else {
-                tokenizer.retreat();
-                return INVALID_VALUE_TYPE_EXCEPTION;
+            tokenizer.reset(integerMark);
+            return true;
+        } else if (tokenizer.getCurrentKind() == TokenKind.DOT) {
+            int dotMark = tokenizer.mark();
+            tokenizer.advance();
+            if (tokenizer.isIntLiteral()) {
+                return true;
             }
-        } else {
-            return INVALID_VALUE_TYPE_EXCEPTION;
+            tokenizer.reset(dotMark);
         }
-        return result;
+        return false;
     }
 
+    // Checks if a token kind may follow a value: ';', ')', ',', '|' or '&'
+    private static boolean isAfterValueKind(int kind) {
+        return kind == TokenKind.SEMICOLON || kind == TokenKind.CLOSE_PARENTHESIS ||
+                kind == TokenKind.COMMA || isAndOrKind(kind);
+    }
 
-    private String handleBooleanValues(String variableName, String variableValue)
-            throws InvalidValueTypeException {
+    private void handleBooleanValues(String variableName) throws InvalidValueTypeException {
         // Booleans are either TRUE, FALSE, or valid numeric values (int or double)
-        if (!variableValue.equals(TRUE) && !variableValue.equals(FALSE)) {
-            variableValue = handleDoubleValues(variableValue);
-            if (variableValue.equals(INVALID_VALUE_TYPE_EXCEPTION)){
+        int kind = tokenizer.getCurrentKind();
+        if (kind != TokenKind.TRUE && kind != TokenKind.FALSE) {
+            if (!handleDoubleValues()){
                 throw new InvalidValueTypeException(variableName, BOOLEAN);
             }
         }
-        return variableValue;
     }
 
     private int verifyManyVariableDeclarations(String variableName, String currentToken)
             throws InvalidVariableDeclarationException {
-        switch (currentToken) {
-            case EOL_COMMA -> {
+        switch (tokenizer.getCurrentKind()) {
+            case TokenKind.SEMICOLON -> {
                 return END_OF_LINE;
             }
-            case COMMA -> {
+            case TokenKind.COMMA -> {
                 return MORE_VARIABLES;
             }
             default -> throw new InvalidVariableDeclarationException(variableName, currentToken);
         }
     }
 
-    private int verifyEqualSign(String variableName, String type, boolean isConstant)
+    private int verifyEqualSign(String variableName, int typeKind, boolean isConstant)
             throws InvalidVariableDeclarationException, VariableAlreadyDeclaredException,
             ConstantNonAssignmentException {
         String currentToken = tokenizer.getCurrentToken();
 
         // Handle assignment
-        switch (currentToken) {
-            case EQUALS -> {
+        switch (tokenizer.getCurrentKind()) {
+            case TokenKind.EQUALS -> {
                 return HAS_VALUE;
             }
             // Handle end of line or single declaration (int a;)
-            case EOL_COMMA -> {
-                variablesTable.declareVariable(variableName, type, null, isConstant, false);
+            case TokenKind.SEMICOLON -> {
+                variablesTable.declareVariable(variableName, typeKind, false, isConstant, false);
                 return END_OF_LINE;
             }
             // Handle multiple variable declarations (int a, b;)
-            case COMMA -> {
-                variablesTable.declareVariable(variableName, type, null, isConstant, false);
+            case TokenKind.COMMA -> {
+                variablesTable.declareVariable(variableName, typeKind, false, isConstant, false);
                 return MORE_VARIABLES;
             }
             // Unexpected token
@@ -1013,10 +1465,19 @@ public class VerificationEngine {
 
 
     private String verifyVariableName(String currentToken) throws InvalidVariableNameException {
-        if (!tokenizer.isIdentifier(currentToken) || RESERVED_NAMES.contains(currentToken)) {
+        if (!Tokenizer.isIdentifier(currentToken) || isReservedName(tokenizer.getCurrentKind())) {
             throw new InvalidVariableNameException(currentToken);
         } else {
             return currentToken;
         }
     }
+
+    // Checks if a token kind is a keyword that cannot be used as a variable name
+    private static boolean isReservedName(int kind) {
+        return switch (kind) {
+            case TokenKind.VOID, TokenKind.INT, TokenKind.DOUBLE, TokenKind.STRING, TokenKind.CHAR,
+                    TokenKind.IF, TokenKind.WHILE, TokenKind.BOOLEAN -> true;
+            default -> false;
+        };
+    }
 }
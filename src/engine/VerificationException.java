@@ -0,0 +1,51 @@
+package engine;
+
+/**
+ * The base class of the errors of an s-java file. The errors are part of the normal flow of the
+ * verification, so they do not fill in a stack trace, and their message is formatted from their
+ * error code and arguments only when it is asked for.
+ */
+public class VerificationException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    // Fields
+    private final ErrorCode errorCode;
+    private final Object[] arguments;
+
+    /**
+     * Constructor - Creates a VerificationException exception without a stack trace
+     * @param errorCode : ErrorCode - The error
+     * @param arguments : Object[] - The arguments of the error message
+     */
+    protected VerificationException(ErrorCode errorCode, Object... arguments) {
+        super(null, null, false, false);
+        this.errorCode = errorCode;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Getter for the error code
+     * @return : ErrorCode - The error
+     */
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Getter for the arguments of the error message
+     * @return : Object[] - The arguments of the error
+     */
+    public Object[] getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Returns an error message
+     * @return : String - error message
+     */
+    @Override
+    public String getMessage() {
+        return errorCode.format(arguments);
+    }
+}
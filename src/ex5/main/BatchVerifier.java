@@ -0,0 +1,122 @@
+package ex5.main;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * This class verifies many s-java files in a single run of the program. The files are given as
+ * paths of files, directories that are searched recursively for s-java files, or list files
+ * ("@path") with a path in every line. The files are verified on a pool of workers, and the result
+ * of every file is printed in the order the files were given, as its path, a tab and 0/1/2. The
+ * error messages of a file are printed to the error stream, every one after the path and a tab.
+ * With stats, the figures of all the files are printed to the error stream at the end, with their
+ * percentiles.
+ */
+class BatchVerifier {
+
+    private static final String EXTENSION = ".sjava";
+    private static final String LIST_FILE_PREFIX = "@";
+    private static final String SEPARATOR = "\t";
+
+    // Fields
+    private final ArrayList<Path> files;
+    private final int jobs;
+    private final boolean allErrors;
+    private final ResultCache cache;
+    private final boolean isStats;
+
+    /**
+     * Constructor - Creates a BatchVerifier object and collects the files to verify
+     * @param arguments : ArrayList<String> - The paths of files, directories and list files
+     * @param jobs : int - The number of files verified at the same time
+     * @param allErrors : boolean - True to report all the errors of every file, False to report
+     *                  the first one
+     * @param cache : ResultCache - The cache of results, or null to verify every file
+     * @param isStats : boolean - True to measure the phases of every file and print the figures
+     * @throws IOException - When a list file cannot be read
+     */
+    BatchVerifier(ArrayList<String> arguments, int jobs, boolean allErrors, ResultCache cache,
+                  boolean isStats) throws IOException {
+        this.files = new ArrayList<>();
+        this.jobs = jobs;
+        this.allErrors = allErrors;
+        this.cache = cache;
+        this.isStats = isStats;
+        for (String argument : arguments) {
+            if (argument.startsWith(LIST_FILE_PREFIX)) {
+                for (String line : Files.readAllLines(Paths.get(argument.substring(1)))) {
+                    if (!line.isBlank()) {
+                        addPath(Paths.get(line.strip()));
+                    }
+                }
+            } else {
+                addPath(Paths.get(argument));
+            }
+        }
+    }
+
+    // Adds a file, or the s-java files of a directory in the order of their paths. A directory
+    // that cannot be searched is added itself, so it is reported as an IO error
+    private void addPath(Path path) {
+        if (!Files.isDirectory(path)) {
+            files.add(path);
+            return;
+        }
+        try (Stream<Path> tree = Files.walk(path)) {
+            tree.filter(file -> file.getFileName().toString().endsWith(EXTENSION) &&
+                            Files.isRegularFile(file))
+                    .sorted()
+                    .forEach(files::add);
+        } catch (IOException | UncheckedIOException e) {
+            files.add(path);
+        }
+    }
+
+    /**
+     * Verifies all the files, and prints the result of every one in the order they were given
+     * @throws InterruptedException - When the run is interrupted while waiting for a file
+     */
+    void run() throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(jobs);
+        try {
+            ArrayList<Future<VerificationResult>> results = new ArrayList<>();
+            ArrayList<VerificationStats> allStats = new ArrayList<>();
+            for (Path file : files) {
+                VerificationStats stats = isStats ? new VerificationStats() : null;
+                allStats.add(stats);
+                results.add(workers.submit(() -> VerificationResult.verifyFile(file, allErrors,
+                        cache, null, stats)));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                VerificationResult result;
+                try {
+                    result = results.get(i).get();
+                } catch (ExecutionException e) {
+                    ArrayList<String> messages = new ArrayList<>();
+                    messages.add(String.valueOf(e.getCause()));
+                    result = new VerificationResult(VerificationResult.CODE_ERROR, messages);
+                }
+                String path = files.get(i).toString();
+                System.out.println(path + SEPARATOR + result.getStatus());
+                for (String message : result.getMessages()) {
+                    System.err.println(path + SEPARATOR + message.strip());
+                }
+            }
+            if (isStats) {
+                System.out.flush();
+                VerificationStats.printAggregate(allStats, System.err);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+}
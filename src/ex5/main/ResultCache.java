@@ -0,0 +1,411 @@
+package ex5.main;
+
+import engine.FunctionCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the results of verified sources on disk, keyed by a hash of the content of the
+ * source, the version of the verifier and the all-errors mode, so an unchanged file is not
+ * verified again.
+ * The cache is a directory with two append-only files:
+ * <ul>
+ *     <li>The log: every result as its length, its key, its status, whether it stopped at its
+ *     error and its messages.</li>
+ *     <li>The index: a key and the offset of its result in the log for every result that was
+ *     stored or used. The last record of a key marks when it was last used.</li>
+ * </ul>
+ * A result is used only if the key stored with it in the log is the key that was looked up. A
+ * result that crashed is not stored, so a single file crashes again as it does without a cache.
+ * The directory also keeps the results of single functions, with the signatures of the functions
+ * every one calls, in a third file. They are read the first time a source is not in the
+ * cache, so only the functions of a changed source that changed, or whose global variables or
+ * called functions changed, are verified again, and they are written back merged with the results
+ * other programs wrote since.
+ * Every operation holds an exclusive lock on a lock file of the directory, so many programs can
+ * share the cache. When the log grows over its size limit, the results that were used most
+ * recently are copied to new files, up to half the limit, and the new files replace the old ones.
+ */
+class ResultCache {
+
+    // The version of the verifier, a result of another version is never used
+    private static final String VERIFIER_VERSION = "sjavac-2";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String LOG_FILE = "results.log";
+    private static final String INDEX_FILE = "results.idx";
+    private static final String LOCK_FILE = "cache.lock";
+    private static final String FUNCTIONS_FILE = "functions.bin";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int KEY_LENGTH = 32;
+    private static final int INDEX_RECORD_LENGTH = KEY_LENGTH + Long.BYTES;
+    private static final int MAX_RECORD_LENGTH = 16 << 20;
+    // The index is compacted when it has this many records for every result, and more than the
+    // minimum
+    private static final int INDEX_RECORDS_PER_RESULT = 4;
+    private static final int MIN_INDEX_RECORDS = 4096;
+
+    // Fields
+    private final Path logPath;
+    private final Path indexPath;
+    private final Path lockPath;
+    private final Path functionsPath;
+    private final long maxLogSize;
+    // Key -> offset of its result in the log, the least recently used first
+    private final LinkedHashMap<ByteBuffer, Long> offsets = new LinkedHashMap<>(16, 0.75f, true);
+    private FileChannel log;
+    private FileChannel index;
+    private Object indexFileKey;
+    private long indexRead;
+    // The results of functions, read from the directory when they are first needed
+    private FunctionCache functionCache;
+
+    /**
+     * Constructor - Creates a ResultCache object over a directory, which is created if needed
+     * @param directory : Path - The directory of the cache
+     * @param maxLogSize : long - The size in bytes the log is kept under
+     * @throws IOException - When the directory cannot be created
+     */
+    ResultCache(Path directory, long maxLogSize) throws IOException {
+        Files.createDirectories(directory);
+        this.logPath = directory.resolve(LOG_FILE);
+        this.indexPath = directory.resolve(INDEX_FILE);
+        this.lockPath = directory.resolve(LOCK_FILE);
+        this.functionsPath = directory.resolve(FUNCTIONS_FILE);
+        this.maxLogSize = maxLogSize;
+    }
+
+    /**
+     * Computes the key of a source
+     * @param content : byte[] - The bytes of the source
+     * @param allErrors : boolean - The mode the source is verified in
+     * @return : byte[] - The key of the result of the source
+     */
+    static byte[] key(byte[] content, boolean allErrors) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(VERIFIER_VERSION.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) (allErrors ? 1 : 0));
+        return digest.digest(content);
+    }
+
+    /**
+     * Looks up the result of a source, and marks it as used
+     * @param key : byte[] - The key of the source
+     * @return : VerificationResult - The result of the source, or null if it is not in the cache
+     * @throws IOException - When the cache cannot be read
+     */
+    synchronized VerificationResult get(byte[] key) throws IOException {
+        try (FileChannel lockChannel = openLock()) {
+            FileLock lock = lockChannel.lock();
+            try {
+                refresh();
+                Long offset = offsets.get(ByteBuffer.wrap(key));
+                if (offset == null) {
+                    return null;
+                }
+                VerificationResult result = readResult(key, offset);
+                if (result != null) {
+                    appendIndex(key, offset);
+                    compactIfNeeded();
+                }
+                return result;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Stores the result of a source
+     * @param key : byte[] - The key of the source
+     * @param result : VerificationResult - The result of the source
+     * @throws IOException - When the cache cannot be written
+     */
+    synchronized void put(byte[] key, VerificationResult result) throws IOException {
+        if (result.getCrash() != null) {
+            return;
+        }
+        ByteBuffer record = encode(key, result);
+        if (record.remaining() > MAX_RECORD_LENGTH) {
+            return;
+        }
+        try (FileChannel lockChannel = openLock()) {
+            FileLock lock = lockChannel.lock();
+            try {
+                refresh();
+                long offset = log.size();
+                while (record.hasRemaining()) {
+                    log.write(record, offset + record.position());
+                }
+                appendIndex(key, offset);
+                compactIfNeeded();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Getter for the results of functions, which are read from the directory the first time
+     * @return : FunctionCache - The results of functions of the cache
+     */
+    synchronized FunctionCache getFunctionCache() {
+        if (functionCache == null) {
+            functionCache = new FunctionCache();
+            try (FileChannel lockChannel = openLock()) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    readFunctions(functionCache);
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                // The functions are verified
+            }
+        }
+        return functionCache;
+    }
+
+    /**
+     * Writes the results of functions that were kept since they were read to the directory,
+     * merged with the results in it
+     * @throws IOException - When the results cannot be written
+     */
+    synchronized void writeFunctions() throws IOException {
+        if (functionCache == null || !functionCache.isChanged()) {
+            return;
+        }
+        try (FileChannel lockChannel = openLock()) {
+            FileLock lock = lockChannel.lock();
+            try {
+                FunctionCache merged = new FunctionCache();
+                readFunctions(merged);
+                merged.addAll(functionCache);
+                Path newFunctions = functionsPath.resolveSibling(FUNCTIONS_FILE +
+                        TEMPORARY_SUFFIX);
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(newFunctions)))) {
+                    merged.write(output);
+                }
+                Files.move(newFunctions, functionsPath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    // Reads the results of functions in the directory, if there are any that can be read. A
+    // malformed file keeps the results that were read before its error
+    private void readFunctions(FunctionCache functions) {
+        if (!Files.exists(functionsPath)) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(functionsPath)))) {
+            functions.read(input);
+        } catch (IOException e) {
+            // The results that were not read are verified again
+        }
+    }
+
+    // Opens the lock file of the cache
+    private FileChannel openLock() throws IOException {
+        return FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    // Reads the index records appended since the last operation. If the files were replaced by a
+    // compaction, they are opened again and the whole index is read
+    private void refresh() throws IOException {
+        if (index == null) {
+            index = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+        Object fileKey = Files.readAttributes(indexPath, BasicFileAttributes.class).fileKey();
+        if (indexFileKey != null && !indexFileKey.equals(fileKey)) {
+            close();
+            refresh();
+            return;
+        }
+        indexFileKey = fileKey;
+
+        // A record that was not fully written is dropped
+        long end = index.size() - index.size() % INDEX_RECORD_LENGTH;
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_RECORD_LENGTH);
+        while (indexRead < end) {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                index.read(buffer, indexRead + buffer.position());
+            }
+            buffer.flip();
+            byte[] key = new byte[KEY_LENGTH];
+            buffer.get(key);
+            offsets.put(ByteBuffer.wrap(key), buffer.getLong());
+            indexRead += INDEX_RECORD_LENGTH;
+        }
+        if (index.size() != end) {
+            index.truncate(end);
+        }
+    }
+
+    // Appends a key and the offset of its result to the index
+    private void appendIndex(byte[] key, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_RECORD_LENGTH);
+        buffer.put(key).putLong(offset).flip();
+        while (buffer.hasRemaining()) {
+            index.write(buffer, indexRead + buffer.position());
+        }
+        indexRead += INDEX_RECORD_LENGTH;
+        offsets.put(ByteBuffer.wrap(key), offset);
+    }
+
+    // Reads the result of a key at an offset of the log, or returns null if the record is damaged
+    // or is the result of another key
+    private VerificationResult readResult(byte[] key, long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        if (log.read(length, offset) != Integer.BYTES) {
+            return null;
+        }
+        int recordLength = length.flip().getInt();
+        if (recordLength < KEY_LENGTH + 2 + Integer.BYTES || recordLength > MAX_RECORD_LENGTH) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(recordLength);
+        while (record.hasRemaining()) {
+            if (log.read(record, offset + Integer.BYTES + record.position()) < 0) {
+                return null;
+            }
+        }
+        record.flip();
+        byte[] storedKey = new byte[KEY_LENGTH];
+        record.get(storedKey);
+        if (!Arrays.equals(storedKey, key)) {
+            return null;
+        }
+        String status = String.valueOf((char) record.get());
+        boolean isStopped = record.get() != 0;
+        int messagesCount = record.getInt();
+        ArrayList<String> messages = new ArrayList<>();
+        for (int i = 0; i < messagesCount; i++) {
+            byte[] message = new byte[record.getInt()];
+            record.get(message);
+            messages.add(new String(message, StandardCharsets.UTF_8));
+        }
+        return new VerificationResult(status, messages, isStopped, null);
+    }
+
+    // Encodes a result as a log record: its length, its key, its status, whether it stopped at
+    // its error and its messages
+    private static ByteBuffer encode(byte[] key, VerificationResult result) {
+        ArrayList<byte[]> messages = new ArrayList<>();
+        int length = KEY_LENGTH + 2 + Integer.BYTES;
+        for (String message : result.getMessages()) {
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            messages.add(bytes);
+            length += Integer.BYTES + bytes.length;
+        }
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length);
+        record.putInt(length).put(key).put((byte) result.getStatus().charAt(0));
+        record.put((byte) (result.isStopped() ? 1 : 0));
+        record.putInt(messages.size());
+        for (byte[] message : messages) {
+            record.putInt(message.length).put(message);
+        }
+        return record.flip();
+    }
+
+    // Compacts the cache if the log is over its size limit, or the index has too many records
+    // of results that were used again
+    private void compactIfNeeded() throws IOException {
+        long indexRecords = indexRead / INDEX_RECORD_LENGTH;
+        if (log.size() > maxLogSize || (indexRecords > MIN_INDEX_RECORDS &&
+                indexRecords > (long) INDEX_RECORDS_PER_RESULT * offsets.size())) {
+            compact();
+        }
+    }
+
+    // Copies the most recently used results, up to half the size limit, to new files that replace
+    // the log and the index
+    private void compact() throws IOException {
+        ArrayList<byte[]> keys = new ArrayList<>();
+        ArrayList<VerificationResult> results = new ArrayList<>();
+        long kept = 0;
+        ArrayList<Map.Entry<ByteBuffer, Long>> entries = new ArrayList<>(offsets.entrySet());
+        for (int i = entries.size() - 1; i >= 0 && kept <= maxLogSize / 2; i--) {
+            byte[] key = Arrays.copyOf(entries.get(i).getKey().array(), KEY_LENGTH);
+            VerificationResult result = readResult(key, entries.get(i).getValue());
+            if (result != null) {
+                keys.add(key);
+                results.add(result);
+                kept += encode(key, result).remaining();
+            }
+        }
+
+        Path newLog = logPath.resolveSibling(LOG_FILE + TEMPORARY_SUFFIX);
+        Path newIndex = indexPath.resolveSibling(INDEX_FILE + TEMPORARY_SUFFIX);
+        try (FileChannel logOutput = FileChannel.open(newLog, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             FileChannel indexOutput = FileChannel.open(newIndex, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // The least recently used first, as in the old index
+            for (int i = keys.size() - 1; i >= 0; i--) {
+                long offset = logOutput.position();
+                ByteBuffer record = encode(keys.get(i), results.get(i));
+                while (record.hasRemaining()) {
+                    logOutput.write(record);
+                }
+                ByteBuffer indexRecord = ByteBuffer.allocate(INDEX_RECORD_LENGTH);
+                indexRecord.put(keys.get(i)).putLong(offset).flip();
+                while (indexRecord.hasRemaining()) {
+                    indexOutput.write(indexRecord);
+                }
+            }
+        }
+        // The index is replaced first: if the program stops between the moves, the new index
+        // points into the old log, and its records do not match their keys and are misses. The
+        // other way, the records of the old index would point into the new log
+        Files.move(newIndex, indexPath, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        Files.move(newLog, logPath, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        close();
+    }
+
+    // Closes the files, so the next operation opens them again and reads the whole index
+    private void close() throws IOException {
+        offsets.clear();
+        indexRead = 0;
+        indexFileKey = null;
+        if (index != null) {
+            index.close();
+            log.close();
+            index = null;
+            log = null;
+        }
+    }
+}
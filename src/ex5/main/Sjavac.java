@@ -2,15 +2,25 @@ package ex5.main;
 
 import engine.VerificationEngine;
 import preprocessor.PreProcessor;
-import tables.FunctionsTable;
+import tables.ConcurrentFunctionsTable;
+import tokenizer.SourceLines;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Objects;
+import java.util.ArrayList;
 
 /**
- * This class creates all the needed objects for the verification progress
+ * This class creates all the needed objects for the verification progress.
+ * A single file is verified and its result printed as before. Many files, directories or list
+ * files are verified together in batch mode by a BatchVerifier, on a pool of workers.
+ * The program can also run as a VerificationDaemon, and a client run forwards its file, or the
+ * source it reads from its standard input, to the daemon.
+ * With a ResultCache, the result of a file whose content was already verified is taken from the
+ * cache instead, and of a changed file only the functions that are not in the cache are verified.
+ * With --stats, the time, CPU time and memory of every phase of the verification are measured
+ * and printed to the error stream, aggregated over the files in batch mode.
  */
 public class Sjavac {
 
@@ -20,24 +30,106 @@ public class Sjavac {
             "Wrong file format (not sjava).";
     private static final String IOEXCEPTION_ILLEGAL_NUMBER_OF_ARGUMENTS_FOR_THE_PROGRAM = "IOException: " +
             "Illegal Number of arguments for the program";
-    private static final int LEGAL_LENGTH = 1;
-    private static final int PATH_INDEX = 0;
-    private static final String EMPTY_STR = "";
+    private static final String IOEXCEPTION_ILLEGAL_NUMBER_OF_JOBS = "IOException: " +
+            "Illegal number of jobs";
+    private static final String ALL_ERRORS_FLAG = "--all-errors";
+    private static final String JOBS_FLAG = "--jobs=";
+    private static final String LIST_FILE_PREFIX = "@";
+    private static final String DAEMON_FLAG = "--daemon=";
+    private static final String CONNECT_FLAG = "--connect=";
+    private static final String STANDARD_INPUT = "-";
+    private static final String CACHE_FLAG = "--cache=";
+    private static final String CACHE_SIZE_FLAG = "--cache-size=";
+    private static final long DEFAULT_CACHE_SIZE_MB = 64;
+    private static final String IOEXCEPTION_ILLEGAL_CACHE_SIZE = "IOException: " +
+            "Illegal cache size";
+    private static final String SUCCESS = "0";
+    private static final String STATS_FLAG = "--stats";
 
     /**
      * The main function of the program. Preprocess the file, and verifies it using PreProcessor
      * and VerificationEngine
-     * @param args - The variables given from the user in the call for the program
+     * @param args - The variables given from the user in the call for the program: the path of the
+     *             file, optionally --all-errors to report all the errors of the file instead
+     *             of the first one, and for batch mode more paths, directories, list files
+     *             ("@path") and --jobs=N for the number of files verified at the same time.
+     *             --daemon=SOCKET runs the daemon, and --connect=SOCKET sends the file, or the
+     *             standard input for the path "-", to the daemon. --cache=DIR keeps the results
+     *             in a cache directory, of at most --cache-size=MB megabytes. --stats prints
+     *             the figures of the phases of the verification
      */
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
 
         //open the file
-        if (args.length < LEGAL_LENGTH) {
+        ArrayList<String> paths = new ArrayList<>();
+        boolean allErrors = false;
+        int jobs = 0;
+        Path daemonSocket = null;
+        Path connectSocket = null;
+        Path cacheDirectory = null;
+        long cacheSizeMb = DEFAULT_CACHE_SIZE_MB;
+        boolean isStats = false;
+        for (String arg : args) {
+            if (arg.equals(ALL_ERRORS_FLAG)) {
+                allErrors = true;
+            } else if (arg.startsWith(JOBS_FLAG)) {
+                jobs = parseJobs(arg.substring(JOBS_FLAG.length()));
+            } else if (arg.startsWith(DAEMON_FLAG)) {
+                daemonSocket = Paths.get(arg.substring(DAEMON_FLAG.length()));
+            } else if (arg.startsWith(CONNECT_FLAG)) {
+                connectSocket = Paths.get(arg.substring(CONNECT_FLAG.length()));
+            } else if (arg.startsWith(CACHE_FLAG)) {
+                cacheDirectory = Paths.get(arg.substring(CACHE_FLAG.length()));
+            } else if (arg.startsWith(CACHE_SIZE_FLAG)) {
+                cacheSizeMb = parseCacheSize(arg.substring(CACHE_SIZE_FLAG.length()));
+            } else if (arg.equals(STATS_FLAG)) {
+                isStats = true;
+            } else {
+                paths.add(arg);
+            }
+        }
+        ResultCache cache = null;
+        if (cacheDirectory != null) {
+            try {
+                cache = new ResultCache(cacheDirectory, cacheSizeMb << 20);
+            } catch (IOException e) {
+                System.out.println(IO_ERROR);
+                throw e;
+            }
+        }
+        if (daemonSocket != null) {
+            new VerificationDaemon(daemonSocket, cache).serve();
+            return;
+        }
+        if (paths.isEmpty()) {
             System.out.println(IO_ERROR);
             throw new IOException(IOEXCEPTION_ILLEGAL_NUMBER_OF_ARGUMENTS_FOR_THE_PROGRAM);
         }
 
-        String filePath = args[PATH_INDEX];
+        String filePath = paths.get(0);
+        if (connectSocket != null) {
+            VerificationResult result = filePath.equals(STANDARD_INPUT) ?
+                    VerificationDaemon.verifyContent(connectSocket, System.in, allErrors) :
+                    VerificationDaemon.verifyFile(connectSocket, Paths.get(filePath), allErrors);
+            printResult(result);
+            return;
+        }
+        if (jobs != 0 || paths.size() > 1 || filePath.startsWith(LIST_FILE_PREFIX) ||
+                Files.isDirectory(Paths.get(filePath))) {
+            if (jobs == 0) {
+                jobs = Runtime.getRuntime().availableProcessors();
+            }
+            BatchVerifier batchVerifier;
+            try {
+                batchVerifier = new BatchVerifier(paths, jobs, allErrors, cache, isStats);
+            } catch (IOException e) {
+                System.out.println(IO_ERROR);
+                throw e;
+            }
+            batchVerifier.run();
+            writeFunctions(cache);
+            return;
+        }
 
         Path path = Paths.get(filePath);
         String fileName = path.getFileName().toString();
@@ -48,15 +140,112 @@ public class Sjavac {
             throw new IOException(IOEXCEPTION_WRONG_FILE_FORMAT_NOT_SJAVA);
         }
 
-        FunctionsTable functionsTable = new FunctionsTable();
+        if (isStats) {
+            VerificationStats stats = new VerificationStats();
+            VerificationResult result = VerificationResult.verifyFile(path, allErrors, cache, null,
+                    stats);
+            writeFunctions(cache);
+            // The figures are printed after the result, and before the crash of the file if it
+            // crashes
+            try {
+                printFileResult(result);
+            } finally {
+                System.out.flush();
+                System.err.println();
+                stats.print(System.err);
+            }
+            return;
+        }
+        if (cache != null) {
+            VerificationResult result = VerificationResult.verifyFile(path, allErrors, cache, null);
+            writeFunctions(cache);
+            printFileResult(result);
+            return;
+        }
+
+        ConcurrentFunctionsTable functionsTable = new ConcurrentFunctionsTable();
 
         PreProcessor preProcessor = new PreProcessor(filePath, functionsTable);
 
-        String output = preProcessor.run();
+        SourceLines cleanedLines = preProcessor.run();
 
-        if (!Objects.equals(output, EMPTY_STR)){
-            new VerificationEngine(output, functionsTable);
+        if (cleanedLines != null){
+            new VerificationEngine(cleanedLines, functionsTable, allErrors);
+        }
+    }
+
+    // Keeps the results of the functions that were verified in the cache, if there is one
+    private static void writeFunctions(ResultCache cache) {
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.writeFunctions();
+        } catch (IOException e) {
+            // The results are not kept
+        }
+    }
+
+    // Prints the result of a single file exactly as the engine prints it, and crashes as the
+    // engine does on a variable that is not declared
+    private static void printFileResult(VerificationResult result) {
+        if (result.getCrash() != null) {
+            throw result.getCrash();
+        }
+        if (result.getStatus().equals(SUCCESS)) {
+            System.out.print(SUCCESS);
+            return;
+        }
+        System.out.println(result.getStatus());
+        for (String message : result.getMessages()) {
+            if (result.isStopped()) {
+                System.err.print(message);
+            } else {
+                System.err.println(message);
+            }
+        }
+    }
+
+    // Prints the result of a file the way the daemon client reports it
+    private static void printResult(VerificationResult result) {
+        if (result.getStatus().equals(SUCCESS)) {
+            System.out.print(SUCCESS);
+            return;
+        }
+        System.out.println(result.getStatus());
+        for (String message : result.getMessages()) {
+            System.err.println(message.strip());
+        }
+    }
+
+    // Parses the size limit of the cache in megabytes, a positive number
+    private static long parseCacheSize(String value) throws IOException {
+        long size;
+        try {
+            size = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            size = 0;
+        }
+        if (size <= 0 || size > Integer.MAX_VALUE) {
+            System.out.println(IO_ERROR);
+            throw new IOException(IOEXCEPTION_ILLEGAL_CACHE_SIZE);
+        }
+        return size;
+    }
+
+    // Parses the number of jobs of batch mode, a positive number
+    private static int parseJobs(String value) throws IOException {
+        int jobs;
+        try {
+            jobs = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            jobs = 0;
+        }
+        if (jobs <= 0) {
+            System.out.println(IO_ERROR);
+            throw new IOException(IOEXCEPTION_ILLEGAL_NUMBER_OF_JOBS);
         }
+        return jobs;
     }
 }
 
@@ -0,0 +1,218 @@
+package ex5.main;
+
+import engine.FunctionCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class keeps the program running as a daemon that verifies s-java sources for its clients,
+ * so a client does not pay the start of the JVM and the warm up of the JIT for every file.
+ * The daemon listens on a Unix-domain socket, and every connection is served by its own thread.
+ * A client may send any number of requests over a connection, and gets a response for every one:
+ * <ul>
+ *     <li>Request: a byte for the kind of the request, a byte for the all-errors mode, and either
+ *     the path of the file (VERIFY_PATH) or the bytes of the source (VERIFY_CONTENT).</li>
+ *     <li>Response: the status 0/1/2, and the error messages of the source.</li>
+ * </ul>
+ * Every string and every source is sent as its length and its UTF-8 bytes.
+ * The daemon keeps the results of the functions it verified, so when a file is verified again only
+ * the functions that changed, or whose global variables or called functions changed, are verified
+ * again.
+ */
+class VerificationDaemon {
+
+    private static final byte VERIFY_PATH = 0;
+    private static final byte VERIFY_CONTENT = 1;
+    private static final int MAX_CONTENT_LENGTH = Integer.MAX_VALUE - 8;
+    private static final String IOEXCEPTION_ILLEGAL_REQUEST = "IOException: Illegal request";
+
+    // Fields
+    private final Path socketPath;
+    private final ResultCache cache;
+    private final FunctionCache functionCache = new FunctionCache();
+
+    /**
+     * Constructor - Creates a VerificationDaemon object
+     * @param socketPath : Path - The path of the socket the daemon listens on
+     * @param cache : ResultCache - The cache of results, or null to verify every source
+     */
+    VerificationDaemon(Path socketPath, ResultCache cache) {
+        this.socketPath = socketPath;
+        this.cache = cache;
+    }
+
+    /**
+     * Listens on the socket and serves the clients, until the program is stopped. A socket that
+     * was left by a daemon that stopped is replaced.
+     * @throws IOException - When the socket cannot be created
+     */
+    void serve() throws IOException {
+        Files.deleteIfExists(socketPath);
+        ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socketPath);
+                } catch (IOException e) {
+                    // The socket is replaced by the next daemon
+                }
+            }));
+            while (true) {
+                SocketChannel client = server.accept();
+                connections.execute(() -> serveClient(client));
+            }
+        } finally {
+            connections.shutdownNow();
+        }
+    }
+
+    // Answers the requests of a client, until it closes the connection or sends an illegal
+    // request
+    private void serveClient(SocketChannel client) {
+        try (client;
+             DataInputStream input = new DataInputStream(new BufferedInputStream(
+                     Channels.newInputStream(client)));
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                     Channels.newOutputStream(client)))) {
+            while (true) {
+                byte kind;
+                try {
+                    kind = input.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                boolean allErrors = input.readBoolean();
+                VerificationResult result;
+                if (kind == VERIFY_PATH) {
+                    result = VerificationResult.verifyFile(Paths.get(readString(input)), allErrors,
+                            cache, functionCache);
+                } else if (kind == VERIFY_CONTENT) {
+                    result = VerificationResult.verifyContent(ByteBuffer.wrap(readBytes(input)),
+                            allErrors, cache, functionCache);
+                } else {
+                    return;
+                }
+                writeResult(output, result);
+                output.flush();
+            }
+        } catch (IOException e) {
+            // The client is gone, or sent an illegal request
+        }
+    }
+
+    /**
+     * Asks a daemon to verify a file
+     * @param socketPath : Path - The path of the socket of the daemon
+     * @param file : Path - The path of the file, which is sent as an absolute path
+     * @param allErrors : boolean - True to report all the errors of the file, False to report the
+     *                  first one
+     * @return : VerificationResult - The result of the file
+     * @throws IOException - When the daemon cannot be reached
+     */
+    static VerificationResult verifyFile(Path socketPath, Path file, boolean allErrors)
+            throws IOException {
+        byte[] path = file.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8);
+        return request(socketPath, VERIFY_PATH, allErrors, path);
+    }
+
+    /**
+     * Asks a daemon to verify a source that is not saved to a file
+     * @param socketPath : Path - The path of the socket of the daemon
+     * @param content : InputStream - The source, which is read to its end
+     * @param allErrors : boolean - True to report all the errors of the source, False to report
+     *                  the first one
+     * @return : VerificationResult - The result of the source
+     * @throws IOException - When the source cannot be read or the daemon cannot be reached
+     */
+    static VerificationResult verifyContent(Path socketPath, InputStream content,
+                                            boolean allErrors) throws IOException {
+        return request(socketPath, VERIFY_CONTENT, allErrors, content.readAllBytes());
+    }
+
+    // Sends a single request to the daemon, and reads its response
+    private static VerificationResult request(Path socketPath, byte kind, boolean allErrors,
+                                              byte[] body) throws IOException {
+        try (SocketChannel daemon = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+             DataInputStream input = new DataInputStream(new BufferedInputStream(
+                     Channels.newInputStream(daemon)));
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                     Channels.newOutputStream(daemon)))) {
+            output.writeByte(kind);
+            output.writeBoolean(allErrors);
+            output.writeInt(body.length);
+            output.write(body);
+            output.flush();
+            return readResult(input);
+        }
+    }
+
+    // Writes a result: its status and its messages
+    private static void writeResult(DataOutputStream output, VerificationResult result)
+            throws IOException {
+        writeString(output, result.getStatus());
+        output.writeInt(result.getMessages().size());
+        for (String message : result.getMessages()) {
+            writeString(output, message);
+        }
+    }
+
+    // Reads a result written by writeResult
+    private static VerificationResult readResult(DataInputStream input) throws IOException {
+        String status = readString(input);
+        int messagesCount = input.readInt();
+        ArrayList<String> messages = new ArrayList<>();
+        for (int i = 0; i < messagesCount; i++) {
+            messages.add(readString(input));
+        }
+        return new VerificationResult(status, messages);
+    }
+
+    // Writes a string as its length and its UTF-8 bytes
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    // Reads a string written by writeString
+    private static String readString(DataInputStream input) throws IOException {
+        return new String(readBytes(input), StandardCharsets.UTF_8);
+    }
+
+    // Reads a length and as many bytes
+    private static byte[] readBytes(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > MAX_CONTENT_LENGTH) {
+            throw new IOException(IOEXCEPTION_ILLEGAL_REQUEST);
+        }
+        byte[] bytes = input.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException();
+        }
+        return bytes;
+    }
+}
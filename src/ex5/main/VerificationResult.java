@@ -0,0 +1,276 @@
+package ex5.main;
+
+import engine.FunctionCache;
+import engine.VerificationEngine;
+import engine.VerificationException;
+import preprocessor.PreProcessor;
+import tables.ConcurrentFunctionsTable;
+import tokenizer.SourceLines;
+import tokenizer.Tokenizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The result of verifying a single s-java source: 0 if it is valid, 1 and the error messages if
+ * it is not, or 2 if it is not an s-java file or cannot be read. Sources are verified without
+ * printing anything, so many of them can be verified concurrently.
+ * A result also keeps how a single file prints it: whether its message is the error that stopped
+ * the verification, and the crash of a variable that is not declared in the first error mode,
+ * which a single file reports by crashing.
+ */
+class VerificationResult {
+
+    private static final String EXTENSION = ".sjava";
+
+    /**
+     * The status of a valid source
+     */
+    static final String SUCCESS = "0";
+
+    /**
+     * The status of a source with errors
+     */
+    static final String CODE_ERROR = "1";
+
+    /**
+     * The status of a source that is not an s-java file or cannot be read
+     */
+    static final String IO_ERROR = "2";
+
+    // Fields
+    private final String status;
+    private final ArrayList<String> messages;
+    private final boolean isStopped;
+    private final RuntimeException crash;
+
+    /**
+     * Constructor - Creates a VerificationResult object
+     * @param status : String - 0/1/2
+     * @param messages : ArrayList<String> - The error messages of the source
+     */
+    VerificationResult(String status, ArrayList<String> messages) {
+        this(status, messages, false, null);
+    }
+
+    /**
+     * Constructor - Creates a VerificationResult object that keeps how it is printed
+     * @param status : String - 0/1/2
+     * @param messages : ArrayList<String> - The error messages of the source
+     * @param isStopped : boolean - True if the message is the error that stopped the
+     *                  verification, False if the messages are the errors of the all-errors mode
+     * @param crash : RuntimeException - The crash of a variable that is not declared, or null
+     */
+    VerificationResult(String status, ArrayList<String> messages, boolean isStopped,
+                       RuntimeException crash) {
+        this.status = status;
+        this.messages = messages;
+        this.isStopped = isStopped;
+        this.crash = crash;
+    }
+
+    /**
+     * Getter for the status
+     * @return : String - 0/1/2
+     */
+    String getStatus() {
+        return status;
+    }
+
+    /**
+     * Getter for the error messages
+     * @return : ArrayList<String> - The error messages of the source, empty if it is valid
+     */
+    ArrayList<String> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Checks if the message is the error that stopped the verification, which a single file
+     * prints without a line break
+     * @return : boolean - True if the verification stopped at the error, False otherwise
+     */
+    boolean isStopped() {
+        return isStopped;
+    }
+
+    /**
+     * Getter for the crash of a variable that is not declared, in the first error mode
+     * @return : RuntimeException - The crash, or null if the verification did not crash
+     */
+    RuntimeException getCrash() {
+        return crash;
+    }
+
+    /**
+     * Verifies an s-java file
+     * @param file : Path - The path of the file
+     * @param allErrors : boolean - True to report all the errors of the file, False to report the
+     *                  first one
+     * @return : VerificationResult - The result of the file
+     */
+    static VerificationResult verifyFile(Path file, boolean allErrors) {
+        return verifyFile(file, allErrors, null, null);
+    }
+
+    /**
+     * Verifies an s-java file, unless its result is in a cache
+     * @param file : Path - The path of the file
+     * @param allErrors : boolean - True to report all the errors of the file, False to report the
+     *                  first one
+     * @param cache : ResultCache - The cache of results, or null to always verify the file
+     * @param functionCache : FunctionCache - The results of single functions, or null to use the
+     *                      results of functions of the cache, if there is one
+     * @return : VerificationResult - The result of the file
+     */
+    static VerificationResult verifyFile(Path file, boolean allErrors, ResultCache cache,
+                                         FunctionCache functionCache) {
+        return verifyFile(file, allErrors, cache, functionCache, null);
+    }
+
+    /**
+     * Verifies an s-java file, unless its result is in a cache, and measures its phases
+     * @param file : Path - The path of the file
+     * @param allErrors : boolean - True to report all the errors of the file, False to report the
+     *                  first one
+     * @param cache : ResultCache - The cache of results, or null to always verify the file
+     * @param functionCache : FunctionCache - The results of single functions, or null to use the
+     *                      results of functions of the cache, if there is one
+     * @param stats : VerificationStats - The figures the phases are measured to, or null
+     * @return : VerificationResult - The result of the file
+     */
+    static VerificationResult verifyFile(Path file, boolean allErrors, ResultCache cache,
+                                         FunctionCache functionCache, VerificationStats stats) {
+        Path fileName = file.getFileName();
+        if (fileName == null || !fileName.toString().endsWith(EXTENSION)) {
+            return new VerificationResult(IO_ERROR, new ArrayList<>());
+        }
+        if (cache != null || functionCache != null) {
+            byte[] content;
+            try {
+                content = Files.readAllBytes(file);
+            } catch (IOException e) {
+                return new VerificationResult(IO_ERROR, new ArrayList<>());
+            }
+            return verifyContent(ByteBuffer.wrap(content), allErrors, cache, functionCache, stats);
+        }
+        ConcurrentFunctionsTable functionsTable = new ConcurrentFunctionsTable();
+        return verify(new PreProcessor(file.toString(), functionsTable), functionsTable, allErrors,
+                null, stats);
+    }
+
+    /**
+     * Verifies an s-java source that is in memory
+     * @param content : ByteBuffer - The bytes of the source
+     * @param allErrors : boolean - True to report all the errors of the source, False to report
+     *                  the first one
+     * @return : VerificationResult - The result of the source
+     */
+    static VerificationResult verifyContent(ByteBuffer content, boolean allErrors) {
+        return verifyContent(content, allErrors, null, null, null);
+    }
+
+    // Verifies a source that is in memory, and only the functions whose results are not in the
+    // function cache
+    private static VerificationResult verifyContent(ByteBuffer content, boolean allErrors,
+                                                    FunctionCache functionCache,
+                                                    VerificationStats stats) {
+        ConcurrentFunctionsTable functionsTable = new ConcurrentFunctionsTable();
+        return verify(new PreProcessor(content, functionsTable), functionsTable, allErrors,
+                functionCache, stats);
+    }
+
+    /**
+     * Verifies an s-java source that is in memory, unless its result is in a cache. A cache that
+     * cannot be used is skipped
+     * @param content : ByteBuffer - The bytes of the source, backed by an array
+     * @param allErrors : boolean - True to report all the errors of the source, False to report
+     *                  the first one
+     * @param cache : ResultCache - The cache of results, or null to always verify the source
+     * @param functionCache : FunctionCache - The results of single functions, or null to use the
+     *                      results of functions of the cache, if there is one
+     * @return : VerificationResult - The result of the source
+     */
+    static VerificationResult verifyContent(ByteBuffer content, boolean allErrors,
+                                            ResultCache cache, FunctionCache functionCache) {
+        return verifyContent(content, allErrors, cache, functionCache, null);
+    }
+
+    // Verifies a source that is in memory unless its result is in the cache, and measures its
+    // phases if it is verified. Without a function cache, the functions of the source are looked up
+    // in the results of functions of the cache
+    private static VerificationResult verifyContent(ByteBuffer content, boolean allErrors,
+                                                    ResultCache cache, FunctionCache functionCache,
+                                                    VerificationStats stats) {
+        if (cache == null) {
+            return verifyContent(content, allErrors, functionCache, stats);
+        }
+        byte[] key = ResultCache.key(Arrays.copyOfRange(content.array(),
+                content.arrayOffset() + content.position(),
+                content.arrayOffset() + content.limit()), allErrors);
+        try {
+            VerificationResult cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        } catch (IOException e) {
+            // The source is verified
+        }
+        VerificationResult result = verifyContent(content, allErrors,
+                functionCache != null ? functionCache : cache.getFunctionCache(), stats);
+        try {
+            cache.put(key, result);
+        } catch (IOException e) {
+            // The result is not kept
+        }
+        return result;
+    }
+
+    // Preprocesses and verifies a source, and measures every phase if there are figures
+    private static VerificationResult verify(PreProcessor preProcessor,
+                                             ConcurrentFunctionsTable functionsTable,
+                                             boolean allErrors, FunctionCache functionCache,
+                                             VerificationStats stats) {
+        ArrayList<String> messages = new ArrayList<>();
+        // The preprocessor stops at its error in both modes, and the engine in the first error
+        // mode only
+        boolean isStopped = !allErrors;
+        RuntimeException crash = null;
+        try {
+            if (stats == null) {
+                SourceLines cleanedLines = preProcessor.preprocess();
+                messages = VerificationEngine.verify(cleanedLines, functionsTable, allErrors,
+                        functionCache);
+            } else {
+                stats.startPhase(VerificationStats.PREPROCESS);
+                SourceLines cleanedLines = preProcessor.preprocess();
+                stats.setLinesCount(cleanedLines.getLinesCount());
+                stats.startPhase(VerificationStats.TOKENIZE);
+                Tokenizer tokens = new Tokenizer(cleanedLines);
+                stats.setTokensCount(tokens.getTokensCount());
+                stats.startPhase(VerificationStats.VERIFY);
+                messages = VerificationEngine.verify(tokens, functionsTable, allErrors,
+                        functionCache, stats.getSymbolCounts());
+            }
+        } catch (IOException e) {
+            return new VerificationResult(IO_ERROR, messages);
+        } catch (VerificationException e) {
+            messages.add(e.getMessage());
+            isStopped = true;
+        } catch (IllegalArgumentException e) {
+            // The symbol table reports a variable that is not declared in the first error mode
+            messages.add(e.getMessage());
+            crash = e;
+        } finally {
+            if (stats != null) {
+                stats.stopPhase();
+            }
+        }
+        return new VerificationResult(messages.isEmpty() ? SUCCESS : CODE_ERROR, messages,
+                isStopped, crash);
+    }
+}
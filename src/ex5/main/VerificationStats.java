@@ -0,0 +1,268 @@
+package ex5.main;
+
+import engine.SymbolCounts;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The figures of verifying a single source: the wall time, the CPU time and the bytes allocated
+ * in every phase, the number of lines and tokens of the source, the number of variables it
+ * declared and the deepest scope it entered. The phases are preprocessing, tokenizing and
+ * verifying, and every phase is measured on the thread that runs it, so the function bodies of a
+ * large source that are verified on other threads add to its wall time only. A figure the JVM
+ * cannot measure is 0.
+ * The figures are reported for a single source, or aggregated over many sources with their
+ * percentiles.
+ */
+class VerificationStats {
+
+    /**
+     * The phase that cleans the source and collects its functions
+     */
+    static final int PREPROCESS = 0;
+
+    /**
+     * The phase that splits the cleaned source to tokens
+     */
+    static final int TOKENIZE = 1;
+
+    /**
+     * The phase that verifies the tokens
+     */
+    static final int VERIFY = 2;
+
+    private static final String[] PHASE_NAMES = {"preprocess", "tokenize", "verify"};
+    private static final String TOTAL = "total";
+    private static final int PHASES_COUNT = PHASE_NAMES.length;
+    private static final int NO_PHASE = -1;
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double BYTES_PER_KB = 1024;
+    private static final double PERCENT = 100;
+    private static final double[] PERCENTILES = {50, 90, 99, PERCENT};
+    private static final String PHASE_HEADER = "%-12s %12s %12s %14s%n";
+    private static final String PHASE_ROW = "%-12s %12.3f %12.3f %14.1f%n";
+    private static final String PERCENTILES_HEADER = "%-24s %14s %14s %14s %14s %14s%n";
+    private static final String PERCENTILES_ROW = "%-24s %14.3f %14.3f %14.3f %14.3f %14.3f%n";
+    private static final String THROUGHPUT = "lines: %d (%.0f lines/s), " +
+            "tokens: %d (%.0f tokens/s)%n";
+    private static final String SYMBOLS = "symbols declared: %d, peak scope depth: %d%n";
+    private static final String FILES = "files: %d, verified: %d%n";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean IS_CPU_TIME_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported();
+    private static final boolean IS_ALLOCATION_SUPPORTED =
+            THREADS instanceof com.sun.management.ThreadMXBean allocations &&
+                    allocations.isThreadAllocatedMemorySupported() &&
+                    allocations.isThreadAllocatedMemoryEnabled();
+
+    // Fields
+    private final long[] wallNanos = new long[PHASES_COUNT];
+    private final long[] cpuNanos = new long[PHASES_COUNT];
+    private final long[] allocatedBytes = new long[PHASES_COUNT];
+    private final SymbolCounts symbolCounts = new SymbolCounts();
+    private int linesCount;
+    private int tokensCount;
+    private boolean isMeasured;
+    // The phase that runs, and the counters of the thread when it started
+    private int phase = NO_PHASE;
+    private long phaseWall;
+    private long phaseCpu;
+    private long phaseAllocated;
+
+    /**
+     * Starts measuring a phase, and stops measuring the phase that runs, if any
+     * @param phase : int - PREPROCESS, TOKENIZE or VERIFY
+     */
+    void startPhase(int phase) {
+        stopPhase();
+        this.phase = phase;
+        isMeasured = true;
+        phaseAllocated = allocatedBytes();
+        phaseCpu = cpuTime();
+        phaseWall = System.nanoTime();
+    }
+
+    /**
+     * Stops measuring the phase that runs, if any
+     */
+    void stopPhase() {
+        if (phase == NO_PHASE) {
+            return;
+        }
+        wallNanos[phase] += System.nanoTime() - phaseWall;
+        cpuNanos[phase] += cpuTime() - phaseCpu;
+        allocatedBytes[phase] += allocatedBytes() - phaseAllocated;
+        phase = NO_PHASE;
+    }
+
+    /**
+     * Setter for the number of lines of the cleaned source
+     * @param linesCount : int - The number of lines
+     */
+    void setLinesCount(int linesCount) {
+        this.linesCount = linesCount;
+    }
+
+    /**
+     * Setter for the number of tokens of the source
+     * @param tokensCount : int - The number of tokens
+     */
+    void setTokensCount(int tokensCount) {
+        this.tokensCount = tokensCount;
+    }
+
+    /**
+     * Getter for the counts of the symbol tables, which the verification adds to
+     * @return : SymbolCounts - The counts of the symbols of the source
+     */
+    SymbolCounts getSymbolCounts() {
+        return symbolCounts;
+    }
+
+    /**
+     * Prints the figures of a single source
+     * @param output : PrintStream - The stream the figures are printed to
+     */
+    void print(PrintStream output) {
+        output.printf(PHASE_HEADER, "phase", "wall ms", "cpu ms", "alloc KB");
+        for (int i = 0; i < PHASES_COUNT; i++) {
+            output.printf(PHASE_ROW, PHASE_NAMES[i], wallNanos[i] / NANOS_PER_MILLI,
+                    cpuNanos[i] / NANOS_PER_MILLI, allocatedBytes[i] / BYTES_PER_KB);
+        }
+        output.printf(PHASE_ROW, TOTAL, sum(wallNanos) / NANOS_PER_MILLI,
+                sum(cpuNanos) / NANOS_PER_MILLI, sum(allocatedBytes) / BYTES_PER_KB);
+        output.printf(THROUGHPUT, linesCount, linesPerSecond(), tokensCount, tokensPerSecond());
+        output.printf(SYMBOLS, symbolCounts.getDeclaredCount(), symbolCounts.getPeakScope());
+    }
+
+    /**
+     * Prints the figures of many sources: for every figure its total and its percentiles over
+     * the sources that were verified. A source whose result was taken from a cache is counted,
+     * but has no figures
+     * @param allStats : ArrayList<VerificationStats> - The figures of the sources
+     * @param output : PrintStream - The stream the figures are printed to
+     */
+    static void printAggregate(ArrayList<VerificationStats> allStats, PrintStream output) {
+        ArrayList<VerificationStats> measured = new ArrayList<>();
+        for (VerificationStats stats : allStats) {
+            if (stats.isMeasured) {
+                measured.add(stats);
+            }
+        }
+        output.printf(FILES, allStats.size(), measured.size());
+        output.printf(PERCENTILES_HEADER, "figure", "total", "p50", "p90", "p99", "max");
+        for (int i = 0; i < PHASES_COUNT; i++) {
+            int phase = i;
+            printPercentiles(output, PHASE_NAMES[i] + " wall ms", measured,
+                    stats -> stats.wallNanos[phase] / NANOS_PER_MILLI);
+            printPercentiles(output, PHASE_NAMES[i] + " cpu ms", measured,
+                    stats -> stats.cpuNanos[phase] / NANOS_PER_MILLI);
+            printPercentiles(output, PHASE_NAMES[i] + " alloc KB", measured,
+                    stats -> stats.allocatedBytes[phase] / BYTES_PER_KB);
+        }
+        printPercentiles(output, TOTAL + " wall ms", measured,
+                stats -> sum(stats.wallNanos) / NANOS_PER_MILLI);
+        printPercentiles(output, TOTAL + " cpu ms", measured,
+                stats -> sum(stats.cpuNanos) / NANOS_PER_MILLI);
+        printPercentiles(output, TOTAL + " alloc KB", measured,
+                stats -> sum(stats.allocatedBytes) / BYTES_PER_KB);
+        printPercentiles(output, "lines", measured, stats -> stats.linesCount);
+        printPercentiles(output, "tokens", measured, stats -> stats.tokensCount);
+        printRate(output, "lines/s", measured, stats -> stats.linesCount);
+        printRate(output, "tokens/s", measured, stats -> stats.tokensCount);
+        printPercentiles(output, "symbols declared", measured,
+                stats -> stats.symbolCounts.getDeclaredCount());
+        // The deepest scope of all the sources stands for the total of the peak scope depth
+        double[] peakScopes = values(measured, stats -> stats.symbolCounts.getPeakScope());
+        printRow(output, "peak scope depth", Arrays.stream(peakScopes).max().orElse(0),
+                peakScopes);
+    }
+
+    // A single figure of the figures of a source
+    private interface Figure {
+        double of(VerificationStats stats);
+    }
+
+    // Prints the total of a figure over the sources, and its percentiles
+    private static void printPercentiles(PrintStream output, String name,
+                                         ArrayList<VerificationStats> measured, Figure figure) {
+        double[] values = values(measured, figure);
+        double total = 0;
+        for (double value : values) {
+            total += value;
+        }
+        printRow(output, name, total, values);
+    }
+
+    // Prints the rate of a count per second of every source, and the rate of its total over the
+    // total wall time of the sources, and the percentiles of the rate
+    private static void printRate(PrintStream output, String name,
+                                  ArrayList<VerificationStats> measured, Figure count) {
+        double total = 0;
+        long nanos = 0;
+        for (VerificationStats stats : measured) {
+            total += count.of(stats);
+            nanos += sum(stats.wallNanos);
+        }
+        printRow(output, name, rate(total, nanos),
+                values(measured, stats -> rate(count.of(stats), sum(stats.wallNanos))));
+    }
+
+    // A figure of every source
+    private static double[] values(ArrayList<VerificationStats> measured, Figure figure) {
+        double[] values = new double[measured.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = figure.of(measured.get(i));
+        }
+        return values;
+    }
+
+    // Prints a total and the percentiles of the values, by the nearest rank
+    private static void printRow(PrintStream output, String name, double total, double[] values) {
+        Arrays.sort(values);
+        Object[] row = new Object[PERCENTILES.length + 2];
+        row[0] = name;
+        row[1] = total;
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            int rank = (int) Math.ceil(PERCENTILES[i] / PERCENT * values.length);
+            row[i + 2] = values.length == 0 ? 0.0 : values[Math.max(rank, 1) - 1];
+        }
+        output.printf(PERCENTILES_ROW, row);
+    }
+
+    private double linesPerSecond() {
+        return rate(linesCount, sum(wallNanos));
+    }
+
+    private double tokensPerSecond() {
+        return rate(tokensCount, sum(wallNanos));
+    }
+
+    private static double rate(double count, long nanos) {
+        return nanos == 0 ? 0 : count * NANOS_PER_SECOND / nanos;
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    // The CPU time of the current thread, or 0 if it cannot be measured
+    private static long cpuTime() {
+        return IS_CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    // The bytes the current thread allocated so far, or 0 if they cannot be measured
+    private static long allocatedBytes() {
+        return IS_ALLOCATION_SUPPORTED ?
+                ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes() : 0;
+    }
+}
@@ -1,17 +1,13 @@
 package preprocessor;
 
+import engine.ErrorCode;
+import engine.VerificationException;
+
 /**
  * Thrown to indicate that a line contains a closing right brace ('}')
  * that should be on a separate line, according to the formatting rules.
  */
-public class ClosingRightBraceException extends Exception {
-    private static final String EXCEPTION_MESSAGE = "ClosingRightBraceException: The line \" %s \" has a " +
-            "rightBrace {' which should be in " +
-            "a separate line";
-    /**
-     * The line
-     */
-    private final String line;
+public class ClosingRightBraceException extends VerificationException {
 
     /**
      * Constructs a new {@code ClosingRightBraceException} with the specified line
@@ -20,17 +16,6 @@ public class ClosingRightBraceException extends Exception {
      * @param line the line of text that caused the exception
      */
     public ClosingRightBraceException(String line) {
-        this.line = line;
-    }
-
-    /**
-     * Returns the detail message of this exception.
-     * The message includes the offending line and describes the formatting issue.
-     *
-     * @return a message indicating the formatting error with the line
-     */
-    @Override
-    public String getMessage() {
-        return String.format(EXCEPTION_MESSAGE, line);
+        super(ErrorCode.CLOSING_RIGHT_BRACE, line);
     }
 }
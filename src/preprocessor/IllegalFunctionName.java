@@ -1,16 +1,14 @@
 package preprocessor;
 
+import engine.ErrorCode;
+import engine.VerificationException;
+
 /**
  * Thrown to indicate that a function name is illegal or does not comply
  * with the expected naming conventions or rules.
  */
-public class IllegalFunctionName extends Exception {
+public class IllegalFunctionName extends VerificationException {
 
-    private static final String MESSAGE = "IllegalFunctionName: illegal function name of function: ";
-    /**
-     * function name
-     */
-    private final String functionName;
     /**
      * Constructs a new {@code IllegalFunctionName} with the specified function name
      * that caused the exception.
@@ -18,16 +16,6 @@ public class IllegalFunctionName extends Exception {
      * @param functionName the name of the function that is deemed illegal
      */
     public IllegalFunctionName(String functionName) {
-        this.functionName = functionName;
-    }
-    /**
-     * Returns the detail message of this exception.
-     * The message includes the offending function name and describes the error.
-     *
-     * @return a formatted message indicating the illegal function name
-     */
-    @Override
-    public String getMessage() {
-        return MESSAGE + functionName;
+        super(ErrorCode.ILLEGAL_FUNCTION_NAME, functionName);
     }
 }
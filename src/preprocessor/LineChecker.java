@@ -0,0 +1,502 @@
+package preprocessor;
+
+import engine.InvalidLineFormatException;
+import engine.VerificationException;
+import tables.ConcurrentFunctionsTable;
+import tables.FunctionSignature;
+import tokenizer.Tokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * The {@code LineChecker} class validates the cleaned lines of a range of a source file, in line
+ * order, and summarizes the range:
+ * <ul>
+ *     <li>The first error of the range and the index of its line.</li>
+ *     <li>The brackets of the range that are not matched inside it: the closing brackets, that
+ *     are matched by the lines before the range, and the opening brackets, that are matched by
+ *     the lines after it.</li>
+ * </ul>
+ * The functions declared in the range are added to a {@link ConcurrentFunctionsTable} with their
+ * lines, so chunks of a file can add their functions concurrently.
+ * The summaries of two adjacent ranges are combined with {@link #append(LineChecker)}, so a file
+ * can be checked in chunks and the chunks combined in any grouping. The combined summary has the
+ * same first error as checking the whole file line by line.
+ */
+class LineChecker {
+    private static final String VOID = "void";
+    private static final String FINAL = "final";
+    private static final char END_OF_LINE = ';';
+    private static final int TWO = 2;
+    private static final char OPEN_PARENTHESIS_CHAR = '(';
+    private static final char OPEN_CURLY_BRACE_CHAR = '{';
+    private static final char OPEN_SQUARE_BRACKET_CHAR = '[';
+    private static final char CLOSE_PARENTHESIS_CHAR = ')';
+    private static final char CLOSE_CURLY_BRACE_CHAR = '}';
+    private static final char CLOSE_SQUARE_BRACKETS_CHAR = ']';
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final String COMMA = ",";
+    private static final String SPLIT_DELIMITER = "\\s+";
+    private static final char SLASH = '/';
+    private static final char STAR = '*';
+    private static final char SPACE = ' ';
+    private static final int VARIABLE_ASSIGNED_LENGTH = 3;
+    private static final int INITIAL_LINE_CAPACITY = 256;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_ERROR = -1;
+
+    private static final String INT = "int";
+    private static final String CHAR = "char";
+    private static final String BOOLEAN = "boolean";
+    private static final String DOUBLE = "double";
+    private static final String STRING = "String";
+    private static final Set<String> TYPES = new HashSet<>(Arrays.asList(
+            INT, CHAR, BOOLEAN, DOUBLE, STRING));
+    private static final FunctionSignature NO_PARAMETERS =
+            new FunctionSignature(new byte[0], new boolean[0]);
+
+    private final Charset charset;
+    private final ConcurrentFunctionsTable functionsTable;
+    private final boolean startsFile;
+
+    // The line being checked
+    private char[] lineChars = new char[INITIAL_LINE_CAPACITY];
+    private int lineLength;
+
+    // The first error of the range
+    private VerificationException error;
+    private int errorLine = NO_ERROR;
+
+    // The unmatched brackets of the range
+    private char[] opens = new char[INITIAL_CAPACITY];
+    private int opensCount;
+    private char[] closes = new char[INITIAL_CAPACITY];
+    private int[] closesLines = new int[INITIAL_CAPACITY];
+    private int closesCount;
+
+    /**
+     * Constructs a {@code LineChecker} for a range of lines.
+     *
+     * @param charset        the charset of the source
+     * @param functionsTable the table the declared functions are added to
+     * @param startsFile     {@code true} if the range starts at the first line of the file, so a
+     *                       closing bracket that is not matched inside the range is an error
+     */
+    LineChecker(Charset charset, ConcurrentFunctionsTable functionsTable, boolean startsFile) {
+        this.charset = charset;
+        this.functionsTable = functionsTable;
+        this.startsFile = startsFile;
+    }
+
+    /**
+     * Reads the line that starts at the given position of the source, and returns where it ends.
+     * The line ends before '\n', '\r' or the end of the source.
+     *
+     * @param source   the bytes of the source
+     * @param position the offset of the first byte of the line
+     * @param limit    the end of the source
+     * @return the offset just after the last byte of the line
+     */
+    int readLine(ByteBuffer source, int position, int limit) {
+        int lineEnd = position;
+        boolean isAscii = true;
+        lineLength = 0;
+        byte current;
+        while (lineEnd < limit && (current = source.get(lineEnd)) != LINE_FEED &&
+                current != CARRIAGE_RETURN) {
+            if (lineLength == lineChars.length) {
+                lineChars = Arrays.copyOf(lineChars, lineLength * 2);
+            }
+            lineChars[lineLength++] = (char) current;
+            isAscii &= current >= 0;
+            lineEnd++;
+        }
+        if (!isAscii) {
+            decodeLine(source, position, lineEnd);
+        }
+        return lineEnd;
+    }
+
+    /**
+     * Reads the line source[start, end).
+     *
+     * @param source the bytes of the source
+     * @param start  the offset of the first byte of the line
+     * @param end    the offset just after the last byte of the line
+     */
+    void loadLine(ByteBuffer source, int start, int end) {
+        if (end - start > lineChars.length) {
+            lineChars = new char[end - start];
+        }
+        lineLength = 0;
+        for (int i = start; i < end; i++) {
+            byte current = source.get(i);
+            if (current < 0) {
+                decodeLine(source, start, end);
+                return;
+            }
+            lineChars[lineLength++] = (char) current;
+        }
+    }
+
+    // Decodes a line that is not ASCII with the charset
+    private void decodeLine(ByteBuffer source, int start, int end) {
+        String line = charset.decode(source.slice(start, end - start)).toString();
+        if (line.length() > lineChars.length) {
+            lineChars = new char[line.length()];
+        }
+        line.getChars(0, line.length(), lineChars, 0);
+        lineLength = line.length();
+    }
+
+    /**
+     * Checks if the line is empty or a comment: whitespaces only, or whitespaces followed by "//".
+     *
+     * @return {@code true} if the line is removed from the cleaned file
+     */
+    boolean isCommentOrEmptyLine() {
+        int index = 0;
+        while (index < lineLength && isWhitespace(lineChars[index])) {
+            index++;
+        }
+        if (index == lineLength) {
+            return true;
+        }
+        if (index + 1 < lineLength && lineChars[index] == SLASH && lineChars[index + 1] == SLASH) {
+            for (int i = index + TWO; i < lineLength; i++) {
+                if (isLineTerminator(lineChars[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks that a line that is not removed from the cleaned file has no invalid comment.
+     *
+     * @return {@code true} if the line has no invalid comment
+     */
+    boolean checkInvalidComments()  {
+        boolean startsWithSlash = lineLength >= 1 && lineChars[0] == SLASH;
+        if ((lineLength == 1 && startsWithSlash) ||
+                (lineLength >= TWO && startsWithSlash && lineChars[1] != SLASH)) {
+            return false;
+        }
+        boolean endsWithCommentClosing = lineLength >= TWO &&
+                lineChars[lineLength - TWO] == STAR && lineChars[lineLength - 1] == SLASH;
+        return !endsWithCommentClosing || startsWithSlash;
+    }
+
+    /**
+     * Checks the line that was read as the given cleaned line: its end, its braces and
+     * semicolons, the function it declares and its brackets. The first error is kept, and the
+     * lines after it are not checked anymore.
+     *
+     * @param line the index of the line in the cleaned file
+     */
+    void checkLine(int line) {
+        if (hasError()) {
+            return;
+        }
+        try {
+            checkCleanedLine(line);
+        } catch (VerificationException e) {
+            setError(e, line);
+        }
+    }
+
+    // Validates a cleaned line, the bracket errors of the line are reported after its other errors
+    private void checkCleanedLine(int line) throws EndOfLineException, ClosingRightBraceException,
+            InvalidLineFormatException, FunctionDeclarationException, IllegalFunctionName,
+            InvalidFunctionParameterException, UnbalancedParenthesesException {
+        if (!hasValidLineEnd()) {
+            throw new EndOfLineException(new String(lineChars, 0, lineLength));
+        }
+
+        // Trim leading and trailing whitespace
+        int start = 0;
+        int end = lineLength;
+        while (start < end && lineChars[start] <= SPACE) {
+            start++;
+        }
+        while (end > start && lineChars[end - 1] <= SPACE) {
+            end--;
+        }
+
+        int semicolons = 0;
+        boolean hasClosingBrace = false;
+        boolean hasOpenParenthesis = false;
+        boolean hasCloseParenthesis = false;
+        boolean isBalanced = true;
+        for (int i = start; i < end; i++) {
+            char ch = lineChars[i];
+            if (ch == END_OF_LINE) {
+                semicolons++;
+            }
+            hasClosingBrace |= ch == CLOSE_CURLY_BRACE_CHAR;
+            hasOpenParenthesis |= ch == OPEN_PARENTHESIS_CHAR;
+            hasCloseParenthesis |= ch == CLOSE_PARENTHESIS_CHAR;
+            if (isBalanced) {
+                isBalanced = checkBracket(ch, line);
+            }
+        }
+
+        if (hasClosingBrace && end - start > 1) {
+            throw new ClosingRightBraceException(new String(lineChars, start, end - start));
+        }
+        if (semicolons >= TWO){
+            throw new InvalidLineFormatException();
+        }
+        if (startsWithVoid(start, end)) {
+            if (!hasOpenParenthesis || !hasCloseParenthesis) {
+                throw new FunctionDeclarationException(new String(lineChars, start, end - start));
+            }
+            collectFunction(start, end, line);
+        }
+        if (!isBalanced) {
+            throw new UnbalancedParenthesesException();
+        }
+    }
+
+    // Checks if the line ends with '{', '}' or ';', that may be followed by one line terminator
+    private boolean hasValidLineEnd() {
+        int last = lineLength - 1;
+        if (last >= 0 && isLineEndChar(lineChars[last])) {
+            return true;
+        }
+        return last >= 1 && isLineTerminator(lineChars[last]) && isLineEndChar(lineChars[last - 1]);
+    }
+
+    // Checks if the trimmed line lineChars[start, end) starts with "void"
+    private boolean startsWithVoid(int start, int end) {
+        if (end - start < VOID.length()) {
+            return false;
+        }
+        for (int i = 0; i < VOID.length(); i++) {
+            if (lineChars[start + i] != VOID.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Matches "void name(params)" at the start of the trimmed line lineChars[start, end) and adds
+    // the declared function to the functions table. A line that does not match declares no
+    // function.
+    private void collectFunction(int start, int end, int line) throws IllegalFunctionName,
+            InvalidFunctionParameterException {
+        int index = start + VOID.length();
+        if (index >= end || lineChars[index] != SPACE) {
+            return;
+        }
+        int nameStart = ++index;
+        while (index < end && isWordChar(lineChars[index])) {
+            index++;
+        }
+        int nameEnd = index;
+        while (index < end && isWhitespace(lineChars[index])) {
+            index++;
+        }
+        if (index >= end || lineChars[index] != OPEN_PARENTHESIS_CHAR) {
+            return;
+        }
+        int paramsStart = ++index;
+        while (index < end && lineChars[index] != CLOSE_PARENTHESIS_CHAR) {
+            index++;
+        }
+        if (index >= end) {
+            return;
+        }
+
+        String functionName = new String(lineChars, nameStart, nameEnd - nameStart);
+        if (nameEnd == nameStart || !isLetter(lineChars[nameStart])) {
+            throw new IllegalFunctionName(functionName);
+        }
+        String params = new String(lineChars, paramsStart, index - paramsStart);
+        FunctionSignature signature = parseParameterTypes(params,
+                new String(lineChars, start, end - start));
+        // Use FunctionsTable instance
+        functionsTable.addFunction(functionName, signature, line);
+    }
+
+    // Parses a parameter list and returns the signature of its parameter types and constness
+    private FunctionSignature parseParameterTypes(String params, String line) throws
+            InvalidFunctionParameterException {
+        if (params.trim().isEmpty()) {
+            return NO_PARAMETERS;
+        }
+        String[] paramArray = params.split(COMMA);
+        byte[] paramTypes = new byte[paramArray.length];
+        boolean[] paramConstants = new boolean[paramArray.length];
+        for (int i = 0; i < paramArray.length; i++) {
+            String param = paramArray[i].trim();
+            String[] parts = param.split(SPLIT_DELIMITER);
+            if (parts.length == TWO && Tokenizer.isIdentifier(parts[1]) &&
+                    TYPES.contains(parts[0])) {
+                // The type is the first part
+                paramTypes[i] = (byte) Tokenizer.keywordKind(parts[0]);
+            } else if (parts.length == VARIABLE_ASSIGNED_LENGTH &&
+                    Tokenizer.isIdentifier(parts[TWO]) &&
+                    TYPES.contains(parts[1]) && parts[0].equals(FINAL)){
+                paramTypes[i] = (byte) Tokenizer.keywordKind(parts[1]);
+                paramConstants[i] = true;
+            } else {
+                throw new InvalidFunctionParameterException(line);
+            }
+        }
+        return new FunctionSignature(paramTypes, paramConstants);
+    }
+
+    // Pushes an opening bracket, or matches a closing bracket with the last unmatched opening
+    // bracket. Returns false if the brackets do not match
+    private boolean checkBracket(char ch, int line) {
+        if (ch == OPEN_PARENTHESIS_CHAR || ch == OPEN_CURLY_BRACE_CHAR ||
+                ch == OPEN_SQUARE_BRACKET_CHAR) {
+            pushOpen(ch);
+        } else if (ch == CLOSE_PARENTHESIS_CHAR || ch == CLOSE_CURLY_BRACE_CHAR ||
+                ch == CLOSE_SQUARE_BRACKETS_CHAR) {
+            if (opensCount != 0) {
+                return isMatchingPair(opens[--opensCount], ch);
+            }
+            if (startsFile) {
+                return false;
+            }
+            addClose(ch, line);
+        }
+        return true;
+    }
+
+    // Pushes an unmatched opening bracket
+    private void pushOpen(char ch) {
+        if (opensCount == opens.length) {
+            opens = Arrays.copyOf(opens, opensCount * 2);
+        }
+        opens[opensCount++] = ch;
+    }
+
+    // Keeps a closing bracket that is left to be matched by the lines before the range
+    private void addClose(char ch, int line) {
+        if (closesCount == closes.length) {
+            closes = Arrays.copyOf(closes, closesCount * 2);
+            closesLines = Arrays.copyOf(closesLines, closesCount * 2);
+        }
+        closes[closesCount] = ch;
+        closesLines[closesCount] = line;
+        closesCount++;
+    }
+
+    // Keeps the first error of the range
+    private void setError(VerificationException error, int line) {
+        this.error = error;
+        this.errorLine = line;
+    }
+
+    /**
+     * Appends the summary of the range that comes right after this range, so this checker
+     * summarizes both ranges.
+     *
+     * @param next the checker of the next range
+     */
+    void append(LineChecker next) {
+        if (hasError()) {
+            return;  // The lines of the next range come after the error
+        }
+        for (int i = 0; i < next.closesCount; i++) {
+            char close = next.closes[i];
+            int line = next.closesLines[i];
+            if (line >= next.getErrorLine()) {
+                break;  // The other errors of a line come before its bracket errors
+            }
+            if (opensCount != 0) {
+                if (!isMatchingPair(opens[--opensCount], close)) {
+                    setError(new UnbalancedParenthesesException(), line);
+                    return;
+                }
+            } else if (startsFile) {
+                setError(new UnbalancedParenthesesException(), line);
+                return;
+            } else {
+                addClose(close, line);
+            }
+        }
+        for (int i = 0; i < next.opensCount; i++) {
+            pushOpen(next.opens[i]);
+        }
+        if (next.hasError()) {
+            setError(next.error, next.errorLine);
+        }
+    }
+
+    /**
+     * Checks if an error was found in the range.
+     *
+     * @return {@code true} if the range has an error
+     */
+    boolean hasError() {
+        return errorLine != NO_ERROR;
+    }
+
+    /**
+     * Returns the index of the line of the first error in the range.
+     *
+     * @return the line of the error, or {@code Integer.MAX_VALUE} if there is no error
+     */
+    int getErrorLine() {
+        return hasError() ? errorLine : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Checks if some brackets of the range are not matched inside it.
+     *
+     * @return {@code true} if there are unmatched brackets
+     */
+    boolean hasUnmatchedBrackets() {
+        return opensCount != 0 || closesCount != 0;
+    }
+
+    /**
+     * Throws the first error of the range, if there is one.
+     */
+    void throwError() throws VerificationException {
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // Helper method to check if the parentheses match
+    private static boolean isMatchingPair(char open, char close) {
+        return (open == OPEN_PARENTHESIS_CHAR && close == CLOSE_PARENTHESIS_CHAR) ||
+                (open == OPEN_CURLY_BRACE_CHAR && close == CLOSE_CURLY_BRACE_CHAR) ||
+                (open == OPEN_SQUARE_BRACKET_CHAR && close == CLOSE_SQUARE_BRACKETS_CHAR);
+    }
+
+    // Whitespace as matched by \s
+    private static boolean isWhitespace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r';
+    }
+
+    // Line terminators, which are not matched by .
+    private static boolean isLineTerminator(char ch) {
+        return ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029';
+    }
+
+    // The characters a cleaned line must end with
+    private static boolean isLineEndChar(char ch) {
+        return ch == OPEN_CURLY_BRACE_CHAR || ch == CLOSE_CURLY_BRACE_CHAR || ch == END_OF_LINE;
+    }
+
+    // ASCII letters
+    private static boolean isLetter(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+    }
+
+    // Word characters as matched by \w
+    private static boolean isWordChar(char ch) {
+        return isLetter(ch) || (ch >= '0' && ch <= '9') || ch == '_';
+    }
+}
@@ -1,12 +1,19 @@
 package preprocessor;
 
-import tables.FunctionsTable;
+import tables.ConcurrentFunctionsTable;
 import engine.InvalidCommentException;
-import engine.InvalidLineFormatException;
+import engine.VerificationException;
+import jdk.jfr.FlightRecorder;
+import tokenizer.SourceLines;
 
 import java.io.*;
-import java.util.*;
-import java.util.regex.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * The {@code PreProcessor} class is responsible for preprocessing a source file
@@ -18,190 +25,196 @@ import java.util.regex.*;
  * </ul>
  * It ensures that the source file adheres to specific rules and formats, and any violations
  * are reported via exceptions or error messages.
+ * The source file is memory-mapped and the cleaned file is kept in memory as ranges of it.
+ * Cleaning and processing are done together in a single pass over the bytes of the file, and
+ * the cleaned lines of large files are processed in parallel.
  */
 public class PreProcessor {
-    private static final String VOID = "void";
-    private static final String FINAL = "final";
-    private static final String CLOSE_CURLY_BRACE = "}";
-    private static final char END_OF_LINE = ';';
-    private static final String OPEN_PARENTHESIS = "(";
-    private static final String CLOSE_PARENTHESIS = ")";
-    private static final int TWO = 2;
-    private static final char OPEN_PARENTHESIS_CHAR = '(';
-    private static final char OPEN_CURLY_BRACE_CHAR = '{';
-    private static final char OPEN_SQUARE_BRACKET_CHAR = '[';
-    private static final char CLOSE_PARENTHESIS_CHAR = ')';
-    private static final char CLOSE_CURLY_BRACE_CHAR = '}';
-    private static final char CLOSE_SQUARE_BRACKETS_CHAR = ']';
     private static final String CODE_FAILURE = "1";
     private static final String IO_FAILURE = "2";
-    private static final String INVALID_FILE_PATH = "";
-    private static final String COMMA = ",";
-    private static final String SPLIT_DELIMITER = "\\s+";
-    private static final char SLASH = '/';
-    private static final String COMMENT_PREFIX = "//";
-    private static final String INVALID_COMMENT_OPENING = "*/";
-    private static final int VARIABLE_ASSIGNED_LENGTH = 3;
-    private String cleanedFilePath = "src/CleanedFile.sjava";
-
-    private static final String INT = "int";
-    private static final String CHAR = "char";
-    private static final String BOOLEAN = "boolean";
-    private static final String DOUBLE = "double";
-    private static final String STRING = "String";
-    private static final Set<String> TYPES = new HashSet<>(Arrays.asList(
-            INT, CHAR, BOOLEAN, DOUBLE, STRING));
-
-    private final String VALID_VARIABLE_REGEX = "^(?!_+$)(?!__)[a-zA-Z0-9_]*$";
-    private final String COMMENT_REGEX = "^(\\s*//.*|\\s*)$";
-    private final String VALID_FUNCTION_REGEX = "^void ([\\w]*)\\s*\\(([^)]*)\\)";
-    private static final String NAME_PATTERN = "^[a-zA-Z]+[\\w]*$";
-    private final String END_OF_LINE_REGEX = ".*[{};]$";
-
-    private final Pattern commentPattern = Pattern.compile(COMMENT_REGEX);
-    private final Pattern validFunctionPattern = Pattern.compile(VALID_FUNCTION_REGEX);
-    private final Pattern validVariablePattern = Pattern.compile(VALID_VARIABLE_REGEX);
-    private final Pattern endOfLinePattern = Pattern.compile(END_OF_LINE_REGEX);
-    private final Pattern namePattern = Pattern.compile(NAME_PATTERN);
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    // Files from this size are checked in parallel chunks of lines
+    private static final long PARALLEL_FILE_SIZE = 8L << 20;
+    private static final int CHUNK_LINES = 16384;
 
     private final String filePath;
-    private final FunctionsTable functionsTable;  // Instance of FunctionsTable
+    private final ByteBuffer content;
+    private final ConcurrentFunctionsTable functionsTable;  // Instance of FunctionsTable
+    private final Charset charset = Charset.defaultCharset();
+    private SourceLines cleanedLines;
 
     /**
      * Constructs a {@code PreProcessor} for the specified file and functions table.
      *
      * @param filePath       the path of the source file to be preprocessed
-     * @param functionsTable the {@code FunctionsTable} instance for managing function declarations
+     * @param functionsTable the {@code FunctionsTable} instance for managing function declarations,
+     *                       which functions may be added to concurrently
      */
-    public PreProcessor(String filePath, FunctionsTable functionsTable) {
+    public PreProcessor(String filePath, ConcurrentFunctionsTable functionsTable) {
         this.filePath = filePath;
+        this.content = null;
         this.functionsTable = functionsTable;
     }
 
-    // Cleans the file by removing comments and empty lines
-    private void cleanFile() throws IOException, InvalidCommentException {
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath));
-             BufferedWriter writer = new BufferedWriter(new FileWriter(cleanedFilePath))) {
+    /**
+     * Constructs a {@code PreProcessor} for a source that is already in memory, e.g. one that was
+     * sent to a daemon instead of being saved to a file.
+     *
+     * @param content        the bytes of the source, from its position to its limit
+     * @param functionsTable the {@code FunctionsTable} instance for managing function declarations,
+     *                       which functions may be added to concurrently
+     */
+    public PreProcessor(ByteBuffer content, ConcurrentFunctionsTable functionsTable) {
+        this.filePath = null;
+        this.content = content;
+        this.functionsTable = functionsTable;
+    }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (commentPattern.matcher(line).matches()) {
-                    continue;
-                }
-                if (!checkInvalidComments(line)) {
+    // Scans the file: removes comments and empty lines, validates the cleaned lines, collects the
+    // function names and checks the parentheses balance.
+    // Small files are checked in one pass, while their comments are removed. Large files are
+    // cleaned first, and then their cleaned lines are checked in parallel chunks.
+    private void scanFile() throws IOException, VerificationException {
+
+        ByteBuffer source = content;
+        if (source == null) {
+            try (FileChannel channel = FileChannel.open(Paths.get(filePath),
+                    StandardOpenOption.READ)) {
+                source = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        cleanedLines = new SourceLines(source, charset);
+        boolean isParallel = source.limit() >= PARALLEL_FILE_SIZE;
+        LineChecker checker = new LineChecker(charset, functionsTable, true);
+
+        // Lines end with '\n', '\r' or "\r\n", like BufferedReader.readLine
+        int position = source.position();
+        int limit = source.limit();
+        int lineNumber = 0;
+        while (position < limit) {
+            int lineEnd = checker.readLine(source, position, limit);
+            lineNumber++;
+            if (!checker.isCommentOrEmptyLine()) {
+                // An invalid comment anywhere in the file comes before the errors of the cleaned
+                // lines, so those are only reported after the whole file is scanned
+                if (!checker.checkInvalidComments()) {
                     throw new InvalidCommentException();
-
                 }
-                writer.write(line);
-                writer.newLine();
+                if (!isParallel) {
+                    checker.checkLine(cleanedLines.getLinesCount());
+                }
+                cleanedLines.addLine(position, lineEnd, lineNumber);
             }
+            position = skipLineTerminator(source, lineEnd, limit);
         }
 
+        if (isParallel) {
+            checker = ForkJoinPool.commonPool().invoke(
+                    new LinesCheckTask(cleanedLines, 0, cleanedLines.getLinesCount()));
+        }
+        reportErrors(checker);
     }
 
-    private boolean checkInvalidComments(String line)  {
-        if ((line.length() == 1 && line.charAt(0) == SLASH) ||
-                (line.length() >= TWO && line.charAt(0) == SLASH && line.charAt(1) != SLASH)) {
-            return false;
-        } else return !line.endsWith(INVALID_COMMENT_OPENING) || line.startsWith(COMMENT_PREFIX);
+    // Reports the first error of the file. A function that is declared twice is reported only if
+    // its second declaration comes before the other errors, and on the line of a bracket error it
+    // comes before the bracket error.
+    private void reportErrors(LineChecker checker) throws VerificationException {
+        int duplicateLine = functionsTable.getFirstDuplicateLine();
+        if (duplicateLine != Integer.MAX_VALUE && duplicateLine <= checker.getErrorLine()) {
+            throw new FunctionAlreadyDeclaredException(functionsTable.getFirstDuplicateName());
+        }
+        checker.throwError();
+        if (checker.hasUnmatchedBrackets()) {
+            throw new UnbalancedParenthesesException();
+        }
     }
 
-    // Processes the cleaned file to collect function names and validate parentheses
-    private void processCleanedFile() throws IOException {
-        Stack<Character> stack = new Stack<>();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(cleanedFilePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                Matcher endOfLineMatcher = endOfLinePattern.matcher(line);
-                if (!endOfLineMatcher.find()) {
-                    throw new EndOfLineException(line);
-                }
-                line = line.trim();  // Trim leading and trailing whitespace
-                if (line.contains(CLOSE_CURLY_BRACE) && line.length() > 1) {
-                    throw new ClosingRightBraceException(line);
-                }
-
-                if (line.chars().filter(ch -> ch == END_OF_LINE).count() >= TWO){
-                    throw new InvalidLineFormatException();
-                }
+    // Returns the position after the line terminator at the given position, if there is one
+    private int skipLineTerminator(ByteBuffer source, int position, int limit) {
+        if (position < limit && source.get(position) == CARRIAGE_RETURN) {
+            position++;
+            if (position < limit && source.get(position) == LINE_FEED) {
+                position++;
+            }
+        } else if (position < limit && source.get(position) == LINE_FEED) {
+            position++;
+        }
+        return position;
+    }
 
-                if (line.startsWith(VOID)){
-                    Matcher functionMatcher = validFunctionPattern.matcher(line);
-                    if (!line.contains(OPEN_PARENTHESIS) || !line.contains(CLOSE_PARENTHESIS)) {
-                        throw new FunctionDeclarationException(line);
-                    }
-                    while (functionMatcher.find()) {
-                        String functionName = functionMatcher.group(1);
-                        if (!namePattern.matcher(functionName).matches()) {
-                            throw new IllegalFunctionName(functionName);
-                        }
-                        String params = functionMatcher.group(TWO);
-                        ArrayList<String> paramTypes = parseParameterTypes(params, line);
-                        // Use FunctionsTable instance
-                        functionsTable.addFunction(functionName, paramTypes);
-                    }
-                }
+    // Checks the cleaned lines [from, to) by splitting them into chunks, and combines the
+    // summaries of the chunks in line order
+    private class LinesCheckTask extends RecursiveTask<LineChecker> {
+        private static final long serialVersionUID = 1L;
+        private final SourceLines lines;
+        private final int from;
+        private final int to;
+
+        LinesCheckTask(SourceLines lines, int from, int to) {
+            this.lines = lines;
+            this.from = from;
+            this.to = to;
+        }
 
-                // Validate parentheses
-                for (char ch : line.toCharArray()) {
-                    if (ch == OPEN_PARENTHESIS_CHAR || ch == OPEN_CURLY_BRACE_CHAR ||
-                            ch == OPEN_SQUARE_BRACKET_CHAR) {
-                        stack.push(ch);
-                    } else if (ch == CLOSE_PARENTHESIS_CHAR || ch == CLOSE_CURLY_BRACE_CHAR ||
-                            ch == CLOSE_SQUARE_BRACKETS_CHAR) {
-                        if (stack.isEmpty() || !isMatchingPair(stack.pop(), ch)) {
-                            throw new UnbalancedParenthesesException();
-
-                        }
-                    }
+        @Override
+        protected LineChecker compute() {
+            if (to - from <= CHUNK_LINES) {
+                LineChecker checker = new LineChecker(charset, functionsTable, from == 0);
+                ByteBuffer source = lines.getSource();
+                for (int line = from; line < to && !checker.hasError(); line++) {
+                    checker.loadLine(source, lines.getLineStart(line), lines.getLineEnd(line));
+                    checker.checkLine(line);
                 }
+                return checker;
             }
-            if (!stack.isEmpty()) {
-                throw new UnbalancedParenthesesException();
-            }
-        } catch (EndOfLineException | UnbalancedParenthesesException |
-                 ClosingRightBraceException | FunctionDeclarationException |
-                 InvalidFunctionParameterException | FunctionAlreadyDeclaredException |
-                 InvalidLineFormatException | IllegalFunctionName e) {
-            System.out.println(CODE_FAILURE);
-            System.err.print(e.getMessage());
-            cleanedFilePath = INVALID_FILE_PATH;
+            int middle = (from + to) >>> 1;
+            LinesCheckTask second = new LinesCheckTask(lines, middle, to);
+            second.fork();
+            LineChecker checker = new LinesCheckTask(lines, from, middle).compute();
+            checker.append(second.join());
+            return checker;
         }
     }
 
-
-    // Parses a parameter list and returns an ArrayList of parameter types
-    private ArrayList<String> parseParameterTypes(String params, String line) throws
-            InvalidFunctionParameterException {
-        ArrayList<String> paramTypes = new ArrayList<>();
-        if (params.trim().isEmpty()) {
-            return paramTypes;
+    /**
+     * Runs the preprocessing steps on the source file without printing anything, so many files
+     * can be preprocessed concurrently.
+     *
+     * @return the lines of the cleaned file
+     * @throws IOException           if the file cannot be read
+     * @throws VerificationException if the file has an invalid comment, a syntax error or
+     *                               unbalanced parentheses
+     */
+    public SourceLines preprocess() throws IOException, VerificationException {
+        // The events of the verifier are disabled by default, and are created only once the
+        // recorder runs, e.g. when a recording is started on a running daemon, so a run that does
+        // not record neither loads the recorder nor allocates an event per source, function or
+        // scope
+        PreprocessEvent event = FlightRecorder.isInitialized() ? new PreprocessEvent() : null;
+        if (event != null) {
+            event.begin();
         }
-        String[] paramArray = params.split(COMMA);
-        for (String param : paramArray) {
-            param = param.trim();
-            String[] parts = param.split(SPLIT_DELIMITER);
-            if (parts.length == TWO && validVariablePattern.matcher(parts[1]).matches() &&
-                    TYPES.contains(parts[0])) {
-                paramTypes.add(parts[0]);  // Add the type (first part) to the list
-            } else if (parts.length == VARIABLE_ASSIGNED_LENGTH &&
-                    validVariablePattern.matcher(parts[TWO]).matches() &&
-                    TYPES.contains(parts[1]) && parts[0].equals(FINAL)){
-                paramTypes.add(parts[1]);
-            } else {
-                throw new InvalidFunctionParameterException(line);
-            }
+        try {
+            scanFile();
+        } finally {
+            commitEvent(event);
         }
-        return paramTypes;
+        return cleanedLines;
     }
 
-    // Helper method to check if the parentheses match
-    private boolean isMatchingPair(char open, char close) {
-        return (open == OPEN_PARENTHESIS_CHAR && close == CLOSE_PARENTHESIS_CHAR) ||
-                (open == OPEN_CURLY_BRACE_CHAR && close == CLOSE_CURLY_BRACE_CHAR) ||
-                (open == OPEN_SQUARE_BRACKET_CHAR && close == CLOSE_SQUARE_BRACKETS_CHAR);
+    // Records the preprocessing as a Flight Recorder event, if the event is enabled
+    private void commitEvent(PreprocessEvent event) {
+        if (event == null || !event.shouldCommit()) {
+            return;
+        }
+        event.file = filePath;
+        if (cleanedLines != null) {
+            event.size = cleanedLines.getSource().remaining();
+            event.linesCount = cleanedLines.getLinesCount();
+        }
+        event.commit();
     }
 
     /**
@@ -213,23 +226,23 @@ public class PreProcessor {
      * </ul>
      * If any error occurs during these steps (e.g., invalid comments, syntax errors, or
      * unbalanced parentheses),
-     * an appropriate error message is printed, and the cleaned file path is invalidated.
+     * an appropriate error message is printed, and the cleaned file is invalidated.
      *
-     * @return the path to the cleaned file if preprocessing is successful,
-     *         or an empty string if an error occurs
-     */    public String run()  {
+     * @return the lines of the cleaned file if preprocessing is successful,
+     *         or {@code null} if an error occurs
+     */
+    public SourceLines run()  {
         try {
-            cleanFile();
-            processCleanedFile();
+            preprocess();
         } catch (IOException e) {
             System.out.println(IO_FAILURE);
-            cleanedFilePath = INVALID_FILE_PATH;
-        } catch (InvalidCommentException e) {
+            cleanedLines = null;
+        } catch (VerificationException e) {
             System.out.println(CODE_FAILURE);
             System.err.print(e.getMessage());
-            cleanedFilePath = INVALID_FILE_PATH;
+            cleanedLines = null;
         }
-        return cleanedFilePath;
+        return cleanedLines;
     }
 
 }
@@ -0,0 +1,34 @@
+package preprocessor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event of preprocessing a single source, from reading it to collecting its
+ * functions.
+ */
+@Name("sjavac.Preprocess")
+@Label("Preprocess")
+@Category({"S-Java", "Verifier"})
+@Description("Cleaning and checking the lines of a source, and collecting its functions")
+@Enabled(false)
+@StackTrace(false)
+class PreprocessEvent extends Event {
+
+    @Label("File")
+    @Description("The path of the source, or null for a source that is not read from a file")
+    String file;
+
+    @Label("Size")
+    @DataAmount
+    long size;
+
+    @Label("Cleaned Lines")
+    int linesCount;
+}
@@ -0,0 +1,133 @@
+package tables;
+
+import preprocessor.FunctionAlreadyDeclaredException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link FunctionsTable} that functions can be added to from several threads at once.
+ * Every function is added with the line that declares it, and when a function is declared more
+ * than once the declaration with the smallest line is kept, whatever order the threads add them
+ * in. The duplicate declarations are remembered, so they can be reported after all the functions
+ * are added.
+ */
+public class ConcurrentFunctionsTable implements FunctionsTable {
+    private static final int NO_LINE = Integer.MAX_VALUE;
+
+    // Function name -> its first declaration
+    private final ConcurrentHashMap<String, Declaration> declarations = new ConcurrentHashMap<>();
+
+    // A declaration of a function, and the smallest line of its other declarations
+    private static final class Declaration {
+        private final int line;
+        private final FunctionSignature signature;
+        private final int duplicateLine;
+
+        private Declaration(int line, FunctionSignature signature, int duplicateLine) {
+            this.line = line;
+            this.signature = signature;
+            this.duplicateLine = duplicateLine;
+        }
+    }
+
+    /**
+     * Adds a function that is declared in the given line, never blocks. If the function is
+     * already declared, the declaration with the smaller line is kept and the other one is
+     * remembered as a duplicate.
+     *
+     * @param functionName the name of the function
+     * @param signature    the types and constness of the parameters of the function
+     * @param line         the line that declares the function
+     */
+    public void addFunction(String functionName, FunctionSignature signature, int line) {
+        Declaration declaration = new Declaration(line, signature, NO_LINE);
+        Declaration current = declarations.putIfAbsent(functionName, declaration);
+        while (current != null) {
+            Declaration merged;
+            if (line < current.line) {
+                merged = new Declaration(line, signature,
+                        Math.min(current.line, current.duplicateLine));
+            } else {
+                merged = new Declaration(current.line, current.signature,
+                        Math.min(current.duplicateLine, line));
+            }
+            if (declarations.replace(functionName, current, merged)) {
+                return;
+            }
+            current = declarations.putIfAbsent(functionName, declaration);
+        }
+    }
+
+    /**
+     * Adds a new function to the table with its parameters and types.
+     *
+     * @param functionName the name of the function
+     * @param signature    the types and constness of the parameters of the function
+     * @throws FunctionAlreadyDeclaredException if a function with the same name is already declared
+     */
+    @Override
+    public void addFunction(String functionName, FunctionSignature signature) throws
+            FunctionAlreadyDeclaredException {
+        if (declarations.putIfAbsent(functionName,
+                new Declaration(NO_LINE, signature, NO_LINE)) != null) {
+            throw new FunctionAlreadyDeclaredException(functionName);
+        }
+    }
+
+    /**
+     * Returns the smallest line of a duplicate declaration, that is a declaration of a function
+     * that is already declared in a smaller line.
+     *
+     * @return the line of the first duplicate declaration, or {@code Integer.MAX_VALUE} if no
+     *         function is declared more than once
+     */
+    public int getFirstDuplicateLine() {
+        int firstLine = NO_LINE;
+        for (Declaration declaration : declarations.values()) {
+            firstLine = Math.min(firstLine, declaration.duplicateLine);
+        }
+        return firstLine;
+    }
+
+    /**
+     * Returns the name of the function of the first duplicate declaration.
+     *
+     * @return the name of the function, or {@code null} if no function is declared more than once
+     */
+    public String getFirstDuplicateName() {
+        int firstLine = getFirstDuplicateLine();
+        if (firstLine == NO_LINE) {
+            return null;
+        }
+        for (Map.Entry<String, Declaration> entry : declarations.entrySet()) {
+            if (entry.getValue().duplicateLine == firstLine) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a function with the specified name exists in the table.
+     *
+     * @param functionName the name of the function to check
+     * @return {@code true} if the function exists, {@code false} otherwise
+     */
+    @Override
+    public boolean hasFunction(String functionName) {
+        return declarations.containsKey(functionName);
+    }
+
+    /**
+     * Retrieves the signature of a function by its name.
+     *
+     * @param functionName the name of the function
+     * @return the types and constness of the parameters of the function,
+     *         or {@code null} if the function does not exist
+     */
+    @Override
+    public FunctionSignature getFunctionSignature(String functionName) {
+        Declaration declaration = declarations.get(functionName);
+        return declaration == null ? null : declaration.signature;
+    }
+}
@@ -0,0 +1,75 @@
+package tables;
+
+import java.util.Arrays;
+
+/**
+ * The parameters of a function, in the order they appear in its declaration.
+ * Every parameter is a single byte: the token kind of its type keyword, with a flag bit set if
+ * the parameter is final. A signature is immutable once it is created.
+ */
+public final class FunctionSignature {
+    private static final byte CONSTANT_FLAG = (byte) 0x80;
+    private static final int TYPE_MASK = 0x7F;
+
+    private final byte[] parameters;
+
+    /**
+     * Constructs a signature from the types and constness of its parameters.
+     *
+     * @param typeKinds   the token kinds of the parameter types, in order
+     * @param isConstants whether every parameter is final, in the same order
+     */
+    public FunctionSignature(byte[] typeKinds, boolean[] isConstants) {
+        parameters = new byte[typeKinds.length];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = isConstants[i] ? (byte) (typeKinds[i] | CONSTANT_FLAG) : typeKinds[i];
+        }
+    }
+
+    /**
+     * Returns the number of parameters of the function.
+     *
+     * @return the number of parameters
+     */
+    public int getParametersCount() {
+        return parameters.length;
+    }
+
+    /**
+     * Returns the type of a parameter.
+     *
+     * @param index the index of the parameter
+     * @return the token kind of the type keyword of the parameter
+     */
+    public int getParameterTypeKind(int index) {
+        return parameters[index] & TYPE_MASK;
+    }
+
+    /**
+     * Checks if a parameter is final.
+     *
+     * @param index the index of the parameter
+     * @return {@code true} if the parameter is final; {@code false} otherwise
+     */
+    public boolean isParameterConstant(int index) {
+        return (parameters[index] & CONSTANT_FLAG) != 0;
+    }
+
+    /**
+     * Checks if another signature has the same parameters, in the same order.
+     *
+     * @param other the object to compare to
+     * @return {@code true} if the other object is a signature with the same parameters;
+     *         {@code false} otherwise
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof FunctionSignature signature &&
+                Arrays.equals(parameters, signature.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(parameters);
+    }
+}
@@ -1,38 +1,22 @@
 package tables;
 
 import preprocessor.FunctionAlreadyDeclaredException;
-import java.util.HashMap;
-import java.util.List;
 
 /**
  * Manages a collection of functions and their associated parameters.
- * Each function is stored with its name and a mapping of parameter indices to their types.
+ * Each function is stored with its name and its {@link FunctionSignature}.
  */
-public class FunctionsTable {
-    // Outer map: function name -> (parameter index -> parameter type)
-    private final HashMap<String, HashMap<Integer, String>> functionsTable = new HashMap<>();
+public interface FunctionsTable {
 
     /**
      * Adds a new function to the table with its parameters and types.
      *
-     * @param functionName   the name of the function
-     * @param parameterTypes a list of parameter types in the order they appear in the function
+     * @param functionName the name of the function
+     * @param signature    the types and constness of the parameters of the function
      * @throws FunctionAlreadyDeclaredException if a function with the same name is already declared
      */
-    public void addFunction(String functionName, List<String> parameterTypes) throws
-            FunctionAlreadyDeclaredException {
-        // Add a new function with its parameters and types
-        if (!hasFunction(functionName)) {
-            HashMap<Integer, String> parameters = new HashMap<>();
-            for (int i = 0; i < parameterTypes.size(); i++) {
-                parameters.put(i, parameterTypes.get(i));
-            }
-            functionsTable.put(functionName, parameters);
-        }
-        else {
-            throw new FunctionAlreadyDeclaredException(functionName);
-        }
-    }
+    void addFunction(String functionName, FunctionSignature signature) throws
+            FunctionAlreadyDeclaredException;
 
     /**
      * Checks if a function with the specified name exists in the table.
@@ -40,20 +24,14 @@ public class FunctionsTable {
      * @param functionName the name of the function to check
      * @return {@code true} if the function exists, {@code false} otherwise
      */
-    public boolean hasFunction(String functionName) {
-        // Check if a function exists
-        return functionsTable.containsKey(functionName);
-    }
+    boolean hasFunction(String functionName);
 
     /**
-     * Retrieves the parameter mapping of a function by its name.
-     * The mapping associates parameter indices with their respective types.
+     * Retrieves the signature of a function by its name.
      *
      * @param functionName the name of the function
-     * @return a map where the keys are parameter indices and the values are parameter types,
+     * @return the types and constness of the parameters of the function,
      *         or {@code null} if the function does not exist
      */
-    public HashMap<Integer, String> getFunctionVariables(String functionName){
-        return functionsTable.get(functionName);
-    }
+    FunctionSignature getFunctionSignature(String functionName);
 }
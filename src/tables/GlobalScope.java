@@ -0,0 +1,179 @@
+package tables;
+
+/**
+ * An immutable map from the names of the global variables to their declarations, every
+ * declaration packed into a non-negative int.
+ * The map is a hash array mapped trie: every node branches on five bits of the hash of a name,
+ * and keeps only the branches that are used. Adding or changing a variable copies only the path
+ * from the root to its entry, and the new map shares all the other nodes with the old one, so any
+ * number of versions of the global scope can be kept and read concurrently without copying it.
+ */
+final class GlobalScope {
+    /**
+     * The value of a name that is not in the map.
+     */
+    static final int ABSENT = -1;
+
+    /**
+     * The empty global scope.
+     */
+    static final GlobalScope EMPTY = new GlobalScope(new Node(0, new String[0], new int[0],
+            new Node[0]));
+
+    private static final int BITS_PER_LEVEL = 5;
+    private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+    // From this shift all the bits of the hash are used, the names left collide
+    private static final int HASH_BITS = Integer.SIZE;
+
+    private final Node root;
+
+    private GlobalScope(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Looks up the declaration of a global variable.
+     *
+     * @param name the name of the variable
+     * @return the packed declaration of the variable, or {@link #ABSENT} if it is not in the map
+     */
+    int get(String name) {
+        int hash = name.hashCode();
+        Node node = root;
+        for (int shift = 0; shift < HASH_BITS; shift += BITS_PER_LEVEL) {
+            int bit = 1 << ((hash >>> shift) & LEVEL_MASK);
+            if ((node.bitmap & bit) == 0) {
+                return ABSENT;
+            }
+            int index = Integer.bitCount(node.bitmap & (bit - 1));
+            if (node.children[index] == null) {
+                return name.equals(node.names[index]) ? node.values[index] : ABSENT;
+            }
+            node = node.children[index];
+        }
+        return node.findCollision(name);
+    }
+
+    /**
+     * Returns a map with a global variable added or changed, this map is left unchanged.
+     *
+     * @param name  the name of the variable
+     * @param value the packed declaration of the variable, non-negative
+     * @return the new map, which shares all the unchanged nodes with this one
+     */
+    GlobalScope with(String name, int value) {
+        Node newRoot = root.with(name, name.hashCode(), value, 0);
+        return newRoot == root ? this : new GlobalScope(newRoot);
+    }
+
+    // A node of the trie. Every entry is either a variable, when its child is null, or a child
+    // node. Below all the bits of the hash, a node keeps the colliding variables in a plain list.
+    private static final class Node {
+        private final int bitmap;
+        private final String[] names;
+        private final int[] values;
+        private final Node[] children;
+
+        Node(int bitmap, String[] names, int[] values, Node[] children) {
+            this.bitmap = bitmap;
+            this.names = names;
+            this.values = values;
+            this.children = children;
+        }
+
+        // Returns the node with the variable added or changed, or this node if nothing changed
+        Node with(String name, int hash, int value, int shift) {
+            if (shift >= HASH_BITS) {
+                return withCollision(name, value);
+            }
+            int bit = 1 << ((hash >>> shift) & LEVEL_MASK);
+            int index = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                return inserted(bit, index, name, value);
+            }
+            Node child = children[index];
+            if (child != null) {
+                Node newChild = child.with(name, hash, value, shift + BITS_PER_LEVEL);
+                return newChild == child ? this : replaced(index, null, 0, newChild);
+            }
+            String existing = names[index];
+            if (existing.equals(name)) {
+                return values[index] == value ? this : replaced(index, name, value, null);
+            }
+            Node split = pair(existing, existing.hashCode(), values[index], name, hash, value,
+                    shift + BITS_PER_LEVEL);
+            return replaced(index, null, 0, split);
+        }
+
+        // Returns a copy of this node with a new entry at an index
+        private Node inserted(int bit, int index, String name, int value) {
+            int length = names.length;
+            String[] newNames = new String[length + 1];
+            int[] newValues = new int[length + 1];
+            Node[] newChildren = new Node[length + 1];
+            System.arraycopy(names, 0, newNames, 0, index);
+            System.arraycopy(values, 0, newValues, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newNames[index] = name;
+            newValues[index] = value;
+            System.arraycopy(names, index, newNames, index + 1, length - index);
+            System.arraycopy(values, index, newValues, index + 1, length - index);
+            System.arraycopy(children, index, newChildren, index + 1, length - index);
+            return new Node(bitmap | bit, newNames, newValues, newChildren);
+        }
+
+        // Returns a copy of this node with the entry at an index replaced
+        private Node replaced(int index, String name, int value, Node child) {
+            String[] newNames = names.clone();
+            int[] newValues = values.clone();
+            Node[] newChildren = children.clone();
+            newNames[index] = name;
+            newValues[index] = value;
+            newChildren[index] = child;
+            return new Node(bitmap, newNames, newValues, newChildren);
+        }
+
+        // Returns a node with two variables whose hashes agree up to the given shift
+        private static Node pair(String firstName, int firstHash, int firstValue,
+                                 String secondName, int secondHash, int secondValue, int shift) {
+            if (shift >= HASH_BITS) {
+                return new Node(0, new String[]{firstName, secondName},
+                        new int[]{firstValue, secondValue}, new Node[2]);
+            }
+            int firstIndex = (firstHash >>> shift) & LEVEL_MASK;
+            int secondIndex = (secondHash >>> shift) & LEVEL_MASK;
+            if (firstIndex == secondIndex) {
+                Node child = pair(firstName, firstHash, firstValue, secondName, secondHash,
+                        secondValue, shift + BITS_PER_LEVEL);
+                return new Node(1 << firstIndex, new String[1], new int[1], new Node[]{child});
+            }
+            int bitmap = (1 << firstIndex) | (1 << secondIndex);
+            if (firstIndex < secondIndex) {
+                return new Node(bitmap, new String[]{firstName, secondName},
+                        new int[]{firstValue, secondValue}, new Node[2]);
+            }
+            return new Node(bitmap, new String[]{secondName, firstName},
+                    new int[]{secondValue, firstValue}, new Node[2]);
+        }
+
+        // Looks up a variable in the list of a collision node
+        int findCollision(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return values[i];
+                }
+            }
+            return ABSENT;
+        }
+
+        // Returns the collision node with the variable added or changed
+        private Node withCollision(String name, int value) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return values[i] == value ? this : replaced(i, name, value, null);
+                }
+            }
+            return inserted(0, names.length, name, value);
+        }
+    }
+}
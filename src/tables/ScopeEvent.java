@@ -0,0 +1,29 @@
+package tables;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event of a scope of a {@link SymbolTable}, from entering it to exiting it. A
+ * scope that was entered before the recording started is not recorded.
+ */
+@Name("sjavac.Scope")
+@Label("Scope")
+@Category({"S-Java", "Verifier"})
+@Description("A scope of the symbol table, from entering it to exiting it")
+@Enabled(false)
+@StackTrace(false)
+class ScopeEvent extends Event {
+
+    @Label("Depth")
+    @Description("The number of the scope, 1 for the global scope")
+    int depth;
+
+    @Label("Declared Variables")
+    int declaredCount;
+}
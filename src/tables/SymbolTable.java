@@ -4,46 +4,159 @@ import engine.ConstantAssignmentException;
 import engine.ConstantNonAssignmentException;
 import engine.UninitializedGlobalVariableException;
 import engine.VariableAlreadyDeclaredException;
+import jdk.jfr.FlightRecorder;
 import java.util.*;
 
 /**
  * A SymbolTable is used to manage variables across multiple scopes during execution.
  * It supports variable declaration, assignment, and retrieval, while enforcing rules
  * for constants, global variables, and scope-specific variable access.
+ * The global scope is a persistent {@link GlobalScope} map, every global variable packed into an
+ * int of its type code and its constant and initialized bits. Every open scope keeps the version
+ * of the global scope it was entered with, so a change to the initialization of a global variable
+ * inside a scope is made on a new version, and exiting the scope goes back to the kept one.
+ * Taking a snapshot of the global scope shares the map, and takes constant time.
+ * Every local declaration takes a slot, and the slots of a scope are contiguous. A slot keeps the
+ * type of the variable as a byte code, and whether the variable is constant and initialized as
+ * bits of two bit sets, no values are stored.
+ * Every local variable name is interned to an int symbol ID, and every symbol keeps a stack of its
+ * active declarations, the innermost on top. Looking up or declaring a variable takes a single
+ * hash probe per scope kind, and exiting a scope removes only the declarations of that scope.
  */
 public class SymbolTable {
     private static final String NOT_DECLARED_IN_ANY_ACCESSIBLE_SCOPE = "Variable ' %s ' not declared " +
             "in any accessible scope";
-    // Outer map: scope number -> (variable name -> (type, value, is constant))
-    private final HashMap<Integer, HashMap<String, VariableInformation>> variablesMap
-            = new HashMap<>();
+    private static final int GLOBAL_SCOPE = 1;
+    private static final int NOT_DECLARED = 0;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final String NOT_IN_GLOBAL_SCOPE = "Only the global scope can be snapshotted";
+
+    // The packed declaration of a global variable, and the flag of a slot that carries one
+    private static final int TYPE_MASK = 0x7F;
+    private static final int CONSTANT_FLAG = 0x80;
+    private static final int INITIALIZED_FLAG = 0x100;
+    private static final int GLOBAL_SLOT = Integer.MIN_VALUE;
+
+    /**
+     * The slot of a variable that is not declared in any accessible scope.
+     */
+    public static final int NO_SLOT = -1;
+
+    // The current version of the global scope, and the version every open scope was entered with
+    private GlobalScope globals = GlobalScope.EMPTY;
+    private GlobalScope[] enteredGlobals = new GlobalScope[INITIAL_CAPACITY];
+
+    // Local variable name -> symbol ID
+    private final HashMap<String, Integer> symbolIds = new HashMap<>();
+    // Symbol ID -> slot of its innermost active declaration
+    private int[] topSlots = new int[INITIAL_CAPACITY];
+
+    // Local slot -> symbol ID, declaring scope, type code and the slot of the declaration it
+    // shadows
+    private int[] slotSymbols = new int[INITIAL_CAPACITY];
+    private int[] slotScopes = new int[INITIAL_CAPACITY];
+    private byte[] slotTypes = new byte[INITIAL_CAPACITY];
+    private int[] shadowedSlots = new int[INITIAL_CAPACITY];
+    private final BitSet constantSlots = new BitSet();
+    private final BitSet initializedSlots = new BitSet();
+    private int slotsCount = 0;
+    // The slot every open scope starts at
+    private int[] scopeStarts = new int[INITIAL_CAPACITY];
     private int currentScope = 0;
+    // Global variable name -> the slot it resolved to on its first lookup, while reads are recorded
+    private HashMap<String, Integer> globalReads;
+    // The number of variables declared in this table, and the deepest scope it entered
+    private int declaredCount = 0;
+    private int peakScope = 0;
+    // The Flight Recorder event of every open scope, null for a scope that is not recorded
+    private ScopeEvent[] scopeEvents;
 
-    private static class VariableInformation {
-        private final Stack<String> globalVariableValuesStack;
-        private int lastUpdatedScope;
-        String type;
-        String value;
-        boolean isConstant;
+    /**
+     * Constructs an empty symbol table, before the global scope is entered.
+     */
+    public SymbolTable() {
+    }
 
-        private VariableInformation(String type, String value, boolean isConstant) {
-            this.type = type;
-            this.value = value;
-            this.isConstant = isConstant;
-            this.globalVariableValuesStack = new Stack<>();
-            this.lastUpdatedScope = 0;
-        }
+    // Constructs a table in the global scope of another table, which shares its global variables
+    private SymbolTable(SymbolTable globalScope) {
+        globals = globalScope.globals;
+        enteredGlobals[GLOBAL_SCOPE] = globalScope.enteredGlobals[GLOBAL_SCOPE];
+        currentScope = GLOBAL_SCOPE;
+        peakScope = GLOBAL_SCOPE;
+    }
 
+    /**
+     * Takes a snapshot of the global scope, as it is now. The snapshot is an independent table in
+     * the global scope, so a function can be verified against it while this table goes on with
+     * the rest of the global scope. The snapshot shares the global variables, which are never
+     * changed in place, so it takes constant time.
+     *
+     * @return a new symbol table with the global variables of this one
+     * @throws IllegalStateException if this table is not in the global scope
+     */
+    public SymbolTable snapshotGlobalScope() {
+        if (currentScope != GLOBAL_SCOPE) {
+            throw new IllegalStateException(NOT_IN_GLOBAL_SCOPE);
+        }
+        return new SymbolTable(this);
     }
 
+    /**
+     * Records the global variables that are looked up from now on, e.g. so the result of a
+     * function can be reused as long as the globals it read did not change. Every name that is
+     * not resolved to a local variable is recorded with the slot it resolved to on its first
+     * lookup, {@link #NO_SLOT} if it was not declared.
+     *
+     * @param globalReads the map the reads are recorded to, or {@code null} to stop recording
+     */
+    public void recordGlobalReads(HashMap<String, Integer> globalReads) {
+        this.globalReads = globalReads;
+    }
 
     /**
-     * Enters a new scope by incrementing the current scope counter and initializing
-     * a new variable map for the scope.
+     * Enters a new scope by incrementing the current scope counter, marking where the
+     * declarations of the scope start and keeping the version of the global scope it starts with.
      */
     public void enterScope() {
         currentScope++;
-        variablesMap.put(currentScope, new HashMap<>());
+        if (currentScope == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, currentScope * 2);
+            enteredGlobals = Arrays.copyOf(enteredGlobals, currentScope * 2);
+        }
+        scopeStarts[currentScope] = slotsCount;
+        enteredGlobals[currentScope] = globals;
+        peakScope = Math.max(peakScope, currentScope);
+        if (FlightRecorder.isInitialized()) {
+            beginScopeEvent();
+        }
+    }
+
+    // Starts recording the current scope as a Flight Recorder event, if the event is enabled
+    private void beginScopeEvent() {
+        ScopeEvent event = new ScopeEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        if (scopeEvents == null || scopeEvents.length < scopeStarts.length) {
+            scopeEvents = scopeEvents == null ? new ScopeEvent[scopeStarts.length] :
+                    Arrays.copyOf(scopeEvents, scopeStarts.length);
+        }
+        event.begin();
+        scopeEvents[currentScope] = event;
+    }
+
+    // Ends the event of the current scope, if it is recorded
+    private void commitScopeEvent() {
+        if (currentScope >= scopeEvents.length) {
+            return;
+        }
+        ScopeEvent event = scopeEvents[currentScope];
+        scopeEvents[currentScope] = null;
+        if (event != null && event.shouldCommit()) {
+            event.depth = currentScope;
+            event.declaredCount = slotsCount - scopeStarts[currentScope];
+            event.commit();
+        }
     }
     /**
      * Gets the current scope in the code, minimum 1 (global)
@@ -52,129 +165,237 @@ public class SymbolTable {
         return currentScope;
     }
 
+    /**
+     * Returns the number of variables declared in this table, in all its scopes. A snapshot of the
+     * global scope counts only the variables declared in it after it was taken.
+     *
+     * @return the number of declared variables
+     */
+    public int getDeclaredCount() {
+        return declaredCount;
+    }
+
+    /**
+     * Returns the deepest scope this table entered, minimum 1 (global) once the global scope is
+     * entered.
+     *
+     * @return the deepest scope entered
+     */
+    public int getPeakScope() {
+        return peakScope;
+    }
+
     /**
      * Exits the current scope, removing all variables declared in this scope and
      * restoring global variables to their previous values if updated within this scope.
      */
     public void exitScope() {
-        HashMap<String, VariableInformation> globalVariables = variablesMap.get(1);
-        if (globalVariables != null) {
-            for (Map.Entry<String, VariableInformation> entry : globalVariables.entrySet()) {
-                if (entry.getValue().lastUpdatedScope == getCurrentScope()) {
-                    entry.getValue().globalVariableValuesStack.pop();
-                    entry.getValue().lastUpdatedScope--;
-                    entry.getValue().value = entry.getValue().globalVariableValuesStack.peek();
-                }
-            }
+        if (scopeEvents != null) {
+            commitScopeEvent();
+        }
+        // The global changes of the scope were made on newer versions of the global scope
+        globals = enteredGlobals[currentScope];
+        enteredGlobals[currentScope] = null;
+        int scopeStart = scopeStarts[currentScope];
+        while (slotsCount > scopeStart) {
+            slotsCount--;
+            topSlots[slotSymbols[slotsCount]] = shadowedSlots[slotsCount];
         }
-        variablesMap.remove(currentScope);
+        constantSlots.clear(scopeStart, Math.max(scopeStart, constantSlots.length()));
+        initializedSlots.clear(scopeStart, Math.max(scopeStart, initializedSlots.length()));
         currentScope--;
     }
 
     /**
      * Declares a new variable in the current scope.
      *
-     * @param name        the name of the variable
-     * @param type        the type of the variable
-     * @param value       the initial value of the variable
-     * @param isConstant  whether the variable is constant
-     * @param isParameter whether the variable is a function parameter
+     * @param name          the name of the variable
+     * @param typeKind      the type of the variable, the token kind of its type keyword
+     * @param isInitialized whether the variable is declared with a value
+     * @param isConstant    whether the variable is constant
+     * @param isParameter   whether the variable is a function parameter
      * @throws VariableAlreadyDeclaredException if the variable is already declared in the current scope
      * @throws ConstantNonAssignmentException   if a constant variable is declared without an initial value
      */
-    public void declareVariable(String name, String type, String value, boolean isConstant,
-                                boolean isParameter)
+    public void declareVariable(String name, int typeKind, boolean isInitialized,
+                                boolean isConstant, boolean isParameter)
             throws VariableAlreadyDeclaredException, ConstantNonAssignmentException {
-        HashMap<String, VariableInformation> currentScopeMap = variablesMap.get(currentScope);
+        if (currentScope == GLOBAL_SCOPE) {
+            declareGlobalVariable(name, typeKind, isInitialized, isConstant, isParameter);
+            return;
+        }
+        int symbol = internSymbol(name);
+        int shadowed = topSlots[symbol];
 
-        if (currentScopeMap.containsKey(name)) {
+        if (shadowed != NO_SLOT && slotScopes[shadowed] == currentScope) {
             throw new VariableAlreadyDeclaredException(name);
         }
-        if (isConstant && value == null && !isParameter) {
+        if (isConstant && !isInitialized && !isParameter) {
             throw new ConstantNonAssignmentException(name);
         }
 
-        currentScopeMap.put(name, new VariableInformation(type, value, isConstant));
-        if (getCurrentScope() == 1) {
-            variablesMap.get(1).get(name).globalVariableValuesStack.push(value);
-            variablesMap.get(1).get(name).lastUpdatedScope++;
+        if (slotsCount == slotSymbols.length) {
+            slotSymbols = Arrays.copyOf(slotSymbols, slotsCount * 2);
+            slotScopes = Arrays.copyOf(slotScopes, slotsCount * 2);
+            slotTypes = Arrays.copyOf(slotTypes, slotsCount * 2);
+            shadowedSlots = Arrays.copyOf(shadowedSlots, slotsCount * 2);
         }
+        int slot = slotsCount++;
+        slotSymbols[slot] = symbol;
+        slotScopes[slot] = currentScope;
+        slotTypes[slot] = (byte) typeKind;
+        shadowedSlots[slot] = shadowed;
+        constantSlots.set(slot, isConstant);
+        initializedSlots.set(slot, isInitialized);
+        topSlots[symbol] = slot;
+        declaredCount++;
+    }
+
+    // Declares a new variable in the global scope, by adding it to a new version of the scope
+    private void declareGlobalVariable(String name, int typeKind, boolean isInitialized,
+                                       boolean isConstant, boolean isParameter)
+            throws VariableAlreadyDeclaredException, ConstantNonAssignmentException {
+        if (globals.get(name) != GlobalScope.ABSENT) {
+            throw new VariableAlreadyDeclaredException(name);
+        }
+        if (isConstant && !isInitialized && !isParameter) {
+            throw new ConstantNonAssignmentException(name);
+        }
+        int declaration = typeKind & TYPE_MASK;
+        if (isConstant) {
+            declaration |= CONSTANT_FLAG;
+        }
+        if (isInitialized) {
+            declaration |= INITIALIZED_FLAG;
+        }
+        globals = globals.with(name, declaration);
+        declaredCount++;
+    }
+
+    // Returns the symbol ID of a name, and gives the name a new ID if it has none yet
+    private int internSymbol(String name) {
+        Integer symbol = symbolIds.get(name);
+        if (symbol == null) {
+            symbol = symbolIds.size();
+            symbolIds.put(name, symbol);
+            if (symbol == topSlots.length) {
+                topSlots = Arrays.copyOf(topSlots, symbol * 2);
+            }
+            topSlots[symbol] = NO_SLOT;
+        }
+        return symbol;
     }
 
     /**
-     * Assigns a new value to a variable. Updates the global variable stack if the variable is global.
+     * Assigns a value to a variable. A change to the initialization of a global variable inside
+     * a scope is made on a new version of the global scope, so it is rolled back when the scope
+     * exits.
      *
-     * @param name  the name of the variable
-     * @param value the new value to assign
+     * @param name          the name of the variable
+     * @param isInitialized whether the assigned value is initialized, it is not for a variable
+     *                      that is assigned an uninitialized variable
      * @throws ConstantAssignmentException          if the variable is constant
      * @throws UninitializedGlobalVariableException if the variable is global and uninitialized
      */
-    public void assignValue(String name, String value) throws ConstantAssignmentException,
+    public void assignValue(String name, boolean isInitialized) throws ConstantAssignmentException,
             UninitializedGlobalVariableException {
-        int scope = findVariableScope(name); // might throw if not assigned
-        if (scope == 1 && getCurrentScope() != 1 && getValue(name) == null) {
+        int slot = resolveVariable(name); // might throw if not assigned
+        boolean wasInitialized = isInitialized(slot);
+        boolean isGlobal = slot < 0;
+        if (isGlobal && getCurrentScope() != GLOBAL_SCOPE && !wasInitialized) {
             throw new UninitializedGlobalVariableException(name);
         }
-        if (variablesMap.get(scope).get(name).isConstant) {
+        if (isConstant(slot)) {
             throw new ConstantAssignmentException(name);
         }
-        VariableInformation Triple = variablesMap.get(scope).get(name);
-        Triple.value = value;
-        if (scope == 1) {
-            variablesMap.get(scope).get(name).globalVariableValuesStack.push(value);
-            variablesMap.get(scope).get(name).lastUpdatedScope++;
-            System.out.println(variablesMap.get(scope).get(name).globalVariableValuesStack);
-
-
+        if (wasInitialized != isInitialized) {
+            if (isGlobal) {
+                globals = globals.with(name, (slot ^ INITIALIZED_FLAG) & ~GLOBAL_SLOT);
+            } else {
+                initializedSlots.set(slot, isInitialized);
+            }
         }
     }
 
     /**
-     * Retrieves the current value of a variable.
+     * Looks up the innermost accessible declaration of a variable.
      *
      * @param name the name of the variable
-     * @return the current value of the variable
+     * @return the slot of the variable, which gives its type, initialization and constness, or
+     *         {@link #NO_SLOT} if it is not declared in any accessible scope. The slot of a global
+     *         variable carries its declaration as it is at the time of the lookup
      */
-    public String getValue(String name) {
-        int scope = findVariableScope(name);
-        return variablesMap.get(scope).get(name).value;
+    public int lookupVariable(String name) {
+        Integer symbol = symbolIds.get(name);
+        if (symbol != null && topSlots[symbol] != NO_SLOT) {
+            return topSlots[symbol];
+        }
+        int declaration = globals.get(name);
+        int slot = declaration == GlobalScope.ABSENT ? NO_SLOT : GLOBAL_SLOT | declaration;
+        if (globalReads != null) {
+            globalReads.putIfAbsent(name, slot);
+        }
+        return slot;
     }
 
     /**
-     * Retrieves the type of variable.
+     * Resolves the innermost accessible declaration of a variable.
      *
      * @param name the name of the variable
-     * @return the type of the variable
+     * @return the slot of the variable, which gives its type, initialization and constness
+     * @throws IllegalArgumentException if the variable is not declared in any accessible scope
      */
-    public String getType(String name) {
-        int scope = findVariableScope(name);
-        return variablesMap.get(scope).get(name).type;
+    public int resolveVariable(String name) {
+        int slot = lookupVariable(name);
+        if (slot == NO_SLOT) {
+            throw new IllegalArgumentException(String.format(NOT_DECLARED_IN_ANY_ACCESSIBLE_SCOPE,
+                    name));
+        }
+        return slot;
     }
 
     /**
-     * Checks if a variable is declared in any accessible scope.
+     * Retrieves the type of the variable in a slot.
      *
-     * @param name the name of the variable
-     * @return the scope number where the variable is declared, or 0 if not declared
+     * @param slot the slot of the variable
+     * @return the token kind of the type keyword of the variable
      */
-    public int isVariableDeclared(String name) {
-        for (int scope = currentScope; scope >= 1; scope--) {
-            if (variablesMap.containsKey(scope) && variablesMap.get(scope).containsKey(name)) {
-                return scope;
-            }
-        }
-        return 0;
+    public int getTypeKind(int slot) {
+        return slot < 0 ? slot & TYPE_MASK : slotTypes[slot];
     }
 
     /**
-     * Checks if a variable is constant.
+     * Checks if the variable in a slot has a value.
      *
-     * @param name the name of the variable
+     * @param slot the slot of the variable
+     * @return {@code true} if the variable is initialized; {@code false} otherwise
+     */
+    public boolean isInitialized(int slot) {
+        return slot < 0 ? (slot & INITIALIZED_FLAG) != 0 : initializedSlots.get(slot);
+    }
+
+    /**
+     * Checks if the variable in a slot is constant.
+     *
+     * @param slot the slot of the variable
      * @return {@code true} if the variable is constant; {@code false} otherwise
      */
-    public boolean isConstant(String name) {
-        int scope = findVariableScope(name);
-        return variablesMap.get(scope).get(name).isConstant;
+    public boolean isConstant(int slot) {
+        return slot < 0 ? (slot & CONSTANT_FLAG) != 0 : constantSlots.get(slot);
+    }
+
+    /**
+     * Checks if a variable is declared in any accessible scope.
+     *
+     * @param name the name of the variable
+     * @return the scope number where the variable is declared, or 0 if not declared
+     */
+    public int isVariableDeclared(String name) {
+        int slot = lookupVariable(name);
+        if (slot == NO_SLOT) {
+            return NOT_DECLARED;
+        }
+        return slot < 0 ? GLOBAL_SCOPE : slotScopes[slot];
     }
 
     /**
@@ -185,12 +406,7 @@ public class SymbolTable {
      * @throws IllegalArgumentException if the variable is not declared in any accessible scope
      */
     public int findVariableScope(String name) {
-        // Helper function to find the scope where a variable is declared
-        for (int scope = currentScope; scope >= 1; scope--) {
-            if (variablesMap.containsKey(scope) && variablesMap.get(scope).containsKey(name)) {
-                return scope;
-            }
-        }
-        throw new IllegalArgumentException(String.format(NOT_DECLARED_IN_ANY_ACCESSIBLE_SCOPE, name));
+        int slot = resolveVariable(name);
+        return slot < 0 ? GLOBAL_SCOPE : slotScopes[slot];
     }
 }
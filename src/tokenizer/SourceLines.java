@@ -0,0 +1,135 @@
+package tokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * The lines of a source that are left after preprocessing. The lines are kept as ranges of the
+ * source bytes, e.g. a memory-mapped file, so handing the cleaned source over to the tokenizer
+ * copies nothing. Every line also keeps its number in the original file, for reporting errors.
+ */
+public class SourceLines {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final ByteBuffer source;
+    private final Charset charset;
+    private int[] lineStarts;
+    private int[] lineEnds;
+    private int[] lineNumbers;
+    private int linesCount;
+
+    /**
+     * Constructs an empty {@code SourceLines} over the given source.
+     *
+     * @param source  the bytes of the source
+     * @param charset the charset used to decode the text of a line
+     */
+    public SourceLines(ByteBuffer source, Charset charset) {
+        this.source = source;
+        this.charset = charset;
+        this.lineStarts = new int[INITIAL_CAPACITY];
+        this.lineEnds = new int[INITIAL_CAPACITY];
+        this.lineNumbers = new int[INITIAL_CAPACITY];
+        this.linesCount = 0;
+    }
+
+    /**
+     * Adds the line source[start, end), without its line terminator.
+     *
+     * @param start      the offset of the first byte of the line
+     * @param end        the offset just after the last byte of the line
+     * @param lineNumber the number of the line in the original file, starting at 1
+     */
+    public void addLine(int start, int end, int lineNumber) {
+        if (linesCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, linesCount * 2);
+            lineEnds = Arrays.copyOf(lineEnds, linesCount * 2);
+            lineNumbers = Arrays.copyOf(lineNumbers, linesCount * 2);
+        }
+        lineStarts[linesCount] = start;
+        lineEnds[linesCount] = end;
+        lineNumbers[linesCount] = lineNumber;
+        linesCount++;
+    }
+
+    /**
+     * Returns the bytes of the source.
+     *
+     * @return the source buffer
+     */
+    public ByteBuffer getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the number of lines.
+     *
+     * @return the number of lines
+     */
+    public int getLinesCount() {
+        return linesCount;
+    }
+
+    /**
+     * Returns the offset of the first byte of a line.
+     *
+     * @param line the index of the line
+     * @return the offset where the line starts
+     */
+    public int getLineStart(int line) {
+        return lineStarts[line];
+    }
+
+    /**
+     * Returns the offset just after the last byte of a line.
+     *
+     * @param line the index of the line
+     * @return the offset where the line ends
+     */
+    public int getLineEnd(int line) {
+        return lineEnds[line];
+    }
+
+    /**
+     * Returns the number of a line in the original file.
+     *
+     * @param line the index of the line
+     * @return the number of the line, starting at 1
+     */
+    public int getLineNumber(int line) {
+        return lineNumbers[line];
+    }
+
+    /**
+     * Finds the line that contains an offset of the source.
+     *
+     * @param offset an offset inside one of the lines
+     * @return the index of the line
+     */
+    public int findLine(int offset) {
+        int low = 0;
+        int high = linesCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (lineStarts[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Decodes the text of a line.
+     *
+     * @param line the index of the line
+     * @return the text of the line
+     */
+    public String getLine(int line) {
+        return charset.decode(source.slice(lineStarts[line], lineEnds[line] - lineStarts[line]))
+                .toString();
+    }
+}
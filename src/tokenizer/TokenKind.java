@@ -0,0 +1,63 @@
+package tokenizer;
+
+/**
+ * The kinds of tokens the tokenizer classifies. Every token is classified once while tokenizing,
+ * so the verification can dispatch on an int instead of comparing strings.
+ */
+public final class TokenKind {
+
+    /**
+     * No token, after the last token of the file
+     */
+    public static final int END = 0;
+    /**
+     * A run of word characters that is not a keyword, e.g. a name or a number
+     */
+    public static final int WORD = 1;
+
+    // Keywords
+    public static final int VOID = 2;
+    public static final int FINAL = 3;
+    public static final int IF = 4;
+    public static final int WHILE = 5;
+    public static final int RETURN = 6;
+    public static final int TRUE = 7;
+    public static final int FALSE = 8;
+    public static final int INT = 9;
+    public static final int DOUBLE = 10;
+    public static final int BOOLEAN = 11;
+    public static final int CHAR = 12;
+    public static final int STRING = 13;
+
+    // Symbols
+    public static final int OPEN_PARENTHESIS = 14;
+    public static final int CLOSE_PARENTHESIS = 15;
+    public static final int OPEN_BRACE = 16;
+    public static final int CLOSE_BRACE = 17;
+    public static final int COMMA = 18;
+    public static final int SEMICOLON = 19;
+    public static final int EQUALS = 20;
+    public static final int DOT = 21;
+    public static final int PLUS = 22;
+    public static final int MINUS = 23;
+    public static final int OR = 24;
+    public static final int AND = 25;
+    public static final int QUOTE = 26;
+    public static final int APOSTROPHE = 27;
+    /**
+     * Any other single-character symbol
+     */
+    public static final int SYMBOL = 28;
+
+    private TokenKind() {
+    }
+
+    /**
+     * Checks if a kind is one of the variable types
+     * @param kind : int - The token kind
+     * @return : True if the kind is int, double, boolean, char or String, and False otherwise
+     */
+    public static boolean isType(int kind) {
+        return kind >= INT && kind <= STRING;
+    }
+}
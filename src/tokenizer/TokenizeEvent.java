@@ -0,0 +1,27 @@
+package tokenizer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event of tokenizing the cleaned lines of a single source.
+ */
+@Name("sjavac.Tokenize")
+@Label("Tokenize")
+@Category({"S-Java", "Verifier"})
+@Description("Splitting the cleaned lines of a source to tokens")
+@Enabled(false)
+@StackTrace(false)
+class TokenizeEvent extends Event {
+
+    @Label("Lines")
+    int linesCount;
+
+    @Label("Tokens")
+    int tokensCount;
+}
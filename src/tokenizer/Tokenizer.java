@@ -1,61 +1,261 @@
 package tokenizer;
 
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import jdk.jfr.FlightRecorder;
 
 /**
- * This class tokenizes the file token by token using regex. Also, can return the tokens type.
+ * This class tokenizes the file token by token using a character-class table. Also, can return
+ * the tokens type.
+ * The tokens are lexed straight from the bytes of the cleaned source lines, e.g. ranges of a
+ * memory-mapped file, and are kept as (offset, length) slices of it. The text of a token is
+ * created only when it is asked for.
  */
 public class Tokenizer {
 
     // Constants
-    private static final String SYMBOLS_REGEX = "[{}()\\[\\],;~%^+/$.\\-#@*~&|<>=\"']";
-    private static final int NEXT = 0;
-    private static final int EMPTY = 0;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int BEFORE_FIRST_TOKEN = -1;
 
-    // Regex
-    private static final String TOKEN_SPLIT = "(" + SYMBOLS_REGEX + "|\\w+)";
-    private static final String IDENTIFIER_PATTERN = "^(?!_+$)(?!__)[a-zA-Z0-9_]*$";
+    // Character classes
+    private static final String SYMBOLS = "{}()[],;~%^+/$.-#@*&|<>=\"'";
+    private static final int ASCII_SIZE = 128;
+    private static final byte SKIP = 0;
+    private static final byte SYMBOL = 1;
+    private static final byte WORD = 2;
+    private static final byte[] CHAR_CLASSES = buildCharClasses();
+    private static final String[] SYMBOL_TOKENS = buildSymbolTokens();
+    private static final int[] SYMBOL_KINDS = buildSymbolKinds();
+
+    // Keywords perfect hash, no two keywords share a slot of the table
+    private static final String[] KEYWORDS = {"void", "final", "if", "while", "return", "true",
+            "false", "int", "double", "boolean", "char", "String"};
+    private static final int[] KEYWORDS_KINDS = {TokenKind.VOID, TokenKind.FINAL, TokenKind.IF,
+            TokenKind.WHILE, TokenKind.RETURN, TokenKind.TRUE, TokenKind.FALSE, TokenKind.INT,
+            TokenKind.DOUBLE, TokenKind.BOOLEAN, TokenKind.CHAR, TokenKind.STRING};
+    private static final int KEYWORDS_TABLE_SIZE = 16;
+    private static final int LAST_CHAR_FACTOR = 12;
+    private static final String[] KEYWORDS_TABLE = new String[KEYWORDS_TABLE_SIZE];
+    private static final int[] KEYWORDS_TABLE_KINDS = new int[KEYWORDS_TABLE_SIZE];
+    private static final String KEYWORDS_COLLISION = "Keywords %s and %s share a hash slot";
+
+    static {
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            String keyword = KEYWORDS[i];
+            int slot = keywordHash(keyword.charAt(0), keyword.charAt(keyword.length() - 1),
+                    keyword.length());
+            if (KEYWORDS_TABLE[slot] != null) {
+                throw new IllegalStateException(String.format(KEYWORDS_COLLISION,
+                        KEYWORDS_TABLE[slot], keyword));
+            }
+            KEYWORDS_TABLE[slot] = keyword;
+            KEYWORDS_TABLE_KINDS[slot] = KEYWORDS_KINDS[i];
+        }
+    }
 
     // Fields
-    private final String[] inputCleanedLines;
-    private int lineIndex;
-    private List<String> tokensList;
+    private final SourceLines lines;
+    private final ByteBuffer source;
+    private int[] starts;
+    private int[] lengths;
+    private int[] kinds;
+    private int tokensCount;
+    private int position;
     private String currentToken;
-    private TokensBuffer lookAheadBuffer;
+    private int currentKind;
 
     /**
-     * Constructor - Creates a Tokenizer object and tokenizes the first line
-     * @param inputStream : String[] - Array of lines
+     * Constructor - Creates a Tokenizer object and tokenizes all the lines into flat token
+     * arrays, which are then walked with a cursor
+     * @param lines : SourceLines - The cleaned lines of the source. Every byte outside ASCII
+     *              separates tokens
      */
-    public Tokenizer(String[] inputStream) {
-        this.inputCleanedLines = inputStream;
-        this.lineIndex = 0;
-        this.tokensList = new ArrayList<>();
+    public Tokenizer(SourceLines lines) {
+        this.lines = lines;
+        this.source = lines.getSource();
+        this.starts = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.kinds = new int[INITIAL_CAPACITY];
+        this.tokensCount = 0;
+        this.position = BEFORE_FIRST_TOKEN;
+        this.currentToken = null;
+        this.currentKind = TokenKind.END;
+        TokenizeEvent event = FlightRecorder.isInitialized() ? new TokenizeEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        for (int line = 0; line < lines.getLinesCount(); line++) {
+            tokenize(lines.getLineStart(line), lines.getLineEnd(line));
+        }
+        if (event != null && event.shouldCommit()) {
+            event.linesCount = lines.getLinesCount();
+            event.tokensCount = tokensCount;
+            event.commit();
+        }
+    }
+
+    // Creates a tokenizer over the tokens of another one, with a cursor of its own
+    private Tokenizer(Tokenizer tokens) {
+        this.lines = tokens.lines;
+        this.source = tokens.source;
+        this.starts = tokens.starts;
+        this.lengths = tokens.lengths;
+        this.kinds = tokens.kinds;
+        this.tokensCount = tokens.tokensCount;
+        this.position = BEFORE_FIRST_TOKEN;
         this.currentToken = null;
-        this.lookAheadBuffer = null;
-        if (inputCleanedLines.length != EMPTY) {
-            this.tokensList = getTokensFromLine(inputCleanedLines[lineIndex]);
+        this.currentKind = TokenKind.END;
+    }
+
+    /**
+     * Creates a tokenizer over the same tokens with a cursor of its own, before the first token.
+     * The tokens never change once they are tokenized, so every cursor may be used by another
+     * thread
+     * @return : Tokenizer - The new cursor
+     */
+    public Tokenizer newCursor() {
+        return new Tokenizer(this);
+    }
+
+    // Builds the table that maps every ASCII character to its class: a single-character symbol,
+    // a part of a word (\\w) or a separator. Characters outside ASCII are separators.
+    private static byte[] buildCharClasses() {
+        byte[] classes = new byte[ASCII_SIZE];
+        for (char ch = 'a'; ch <= 'z'; ch++) {
+            classes[ch] = WORD;
+            classes[Character.toUpperCase(ch)] = WORD;
+        }
+        for (char ch = '0'; ch <= '9'; ch++) {
+            classes[ch] = WORD;
+        }
+        classes['_'] = WORD;
+        for (int i = 0; i < SYMBOLS.length(); i++) {
+            classes[SYMBOLS.charAt(i)] = SYMBOL;
+        }
+        return classes;
+    }
+
+    // Builds the shared token of every symbol, so symbols are never allocated
+    private static String[] buildSymbolTokens() {
+        String[] symbolTokens = new String[ASCII_SIZE];
+        for (int i = 0; i < SYMBOLS.length(); i++) {
+            symbolTokens[SYMBOLS.charAt(i)] = String.valueOf(SYMBOLS.charAt(i));
         }
+        return symbolTokens;
+    }
+
+    // Builds the kind of every symbol, symbols without a kind of their own are TokenKind.SYMBOL
+    private static int[] buildSymbolKinds() {
+        int[] symbolKinds = new int[ASCII_SIZE];
+        Arrays.fill(symbolKinds, TokenKind.SYMBOL);
+        symbolKinds['('] = TokenKind.OPEN_PARENTHESIS;
+        symbolKinds[')'] = TokenKind.CLOSE_PARENTHESIS;
+        symbolKinds['{'] = TokenKind.OPEN_BRACE;
+        symbolKinds['}'] = TokenKind.CLOSE_BRACE;
+        symbolKinds[','] = TokenKind.COMMA;
+        symbolKinds[';'] = TokenKind.SEMICOLON;
+        symbolKinds['='] = TokenKind.EQUALS;
+        symbolKinds['.'] = TokenKind.DOT;
+        symbolKinds['+'] = TokenKind.PLUS;
+        symbolKinds['-'] = TokenKind.MINUS;
+        symbolKinds['|'] = TokenKind.OR;
+        symbolKinds['&'] = TokenKind.AND;
+        symbolKinds['"'] = TokenKind.QUOTE;
+        symbolKinds['\''] = TokenKind.APOSTROPHE;
+        return symbolKinds;
+    }
+
+    // Hashes a word by its first and last characters and its length into the keywords table
+    private static int keywordHash(int first, int last, int length) {
+        return (first + last * LAST_CHAR_FACTOR + length) & (KEYWORDS_TABLE_SIZE - 1);
+    }
+
+    // Returns the keywords table slot of the word in source[start, end)
+    private int keywordSlot(int start, int end) {
+        return keywordHash(source.get(start), source.get(end - 1), end - start);
+    }
+
+    // Returns the kind of the word in source[start, end): its keyword kind, or TokenKind.WORD
+    private int wordKind(int start, int end) {
+        int slot = keywordSlot(start, end);
+        String keyword = KEYWORDS_TABLE[slot];
+        if (keyword == null || keyword.length() != end - start) {
+            return TokenKind.WORD;
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            if (keyword.charAt(i) != source.get(start + i)) {
+                return TokenKind.WORD;
+            }
+        }
+        return KEYWORDS_TABLE_KINDS[slot];
     }
 
     /**
-     * Tokenizes a single line using the regex
-     * @param line : String - One single line
-     * @return : List<String> - An array of the tokens
+     * Classifies a word, e.g. a type name, as a keyword
+     * @param word : String - A nonempty word
+     * @return : int - The keyword kind of the word, or TokenKind.WORD if it is not a keyword
      */
-    public List<String> getTokensFromLine(String line) {
+    public static int keywordKind(String word) {
+        int slot = keywordHash(word.charAt(0), word.charAt(word.length() - 1), word.length());
+        return word.equals(KEYWORDS_TABLE[slot]) ? KEYWORDS_TABLE_KINDS[slot] : TokenKind.WORD;
+    }
 
-        Pattern pattern = Pattern.compile(TOKEN_SPLIT);
-        Matcher matcher = pattern.matcher(line);
+    // Returns the class of a byte according to the table, bytes outside ASCII are negative
+    private static byte charClass(byte ch) {
+        return ch >= 0 ? CHAR_CLASSES[ch] : SKIP;
+    }
+
+    // Tokenizes the line source[start, end) in one pass. Every symbol is a token of its own, and
+    // every maximal run of word characters is a token, anything else separates tokens.
+    private void tokenize(int start, int end) {
+        int index = start;
+        while (index < end) {
+            byte ch = source.get(index);
+            byte charClass = charClass(ch);
+            if (charClass == SYMBOL) {
+                addToken(index, 1, SYMBOL_KINDS[ch]);
+                index++;
+            } else if (charClass == WORD) {
+                int wordStart = index;
+                do {
+                    index++;
+                } while (index < end && charClass(source.get(index)) == WORD);
+                addToken(wordStart, index - wordStart, wordKind(wordStart, index));
+            } else {
+                index++;
+            }
+        }
+    }
 
-        List<String> tokens = new ArrayList<>();
-        while (matcher.find()) {
-            tokens.add(matcher.group());
+    // Appends a token slice and its kind to the token arrays, doubling them when they are full
+    private void addToken(int start, int length, int kind) {
+        if (tokensCount == kinds.length) {
+            starts = Arrays.copyOf(starts, tokensCount * 2);
+            lengths = Arrays.copyOf(lengths, tokensCount * 2);
+            kinds = Arrays.copyOf(kinds, tokensCount * 2);
         }
+        starts[tokensCount] = start;
+        lengths[tokensCount] = length;
+        kinds[tokensCount] = kind;
+        tokensCount++;
+    }
 
-        return tokens;
+    // Creates the text of the token at the given index. Symbols and keywords are shared, only
+    // other words are copied out of the source
+    private String tokenText(int index) {
+        int start = starts[index];
+        int end = start + lengths[index];
+        byte first = source.get(start);
+        if (charClass(first) == SYMBOL) {
+            return SYMBOL_TOKENS[first];
+        } else if (kinds[index] != TokenKind.WORD) {
+            return KEYWORDS_TABLE[keywordSlot(start, end)];
+        }
+        byte[] text = new byte[lengths[index]];
+        source.get(start, text);
+        return new String(text, StandardCharsets.US_ASCII);
     }
 
     /**
@@ -63,69 +263,180 @@ public class Tokenizer {
      * @return : True if there is more tokens and False otherwise
      */
     public boolean hasMoreTokens() {
-        return !tokensList.isEmpty() || lineIndex < inputCleanedLines.length - 1;
+        return position + 1 < tokensCount;
     }
 
     /**
-     * Advances to the next token in the file
+     * Advances to the next token in the file, the current token is null after the last one
      */
     public void advance() {
-
-        if (!hasMoreTokens()){
-            currentToken = null;
+        if (hasMoreTokens()) {
+            position++;
+            currentKind = kinds[position];
+        } else {
+            position = tokensCount;
+            currentKind = TokenKind.END;
         }
+        currentToken = null;
+    }
 
-        while (true) {
-            if (!tokensList.isEmpty()) {
-                currentToken = tokensList.remove(NEXT);
-            } else {
-                lineIndex++;
-                if (lineIndex < inputCleanedLines.length) {
-                    tokensList = getTokensFromLine(inputCleanedLines[lineIndex]);
-                    continue;
-                } else {
-                    currentToken = null;
-                    break;
-                }
+    /**
+     * Checks if a token is an identifier: only word characters, not only underscores and not
+     * starting with two underscores. The empty token is an identifier
+     * @param token : String - The token to check
+     * @return : boolean - True if the token is an identifier and False otherwise
+     */
+    public static boolean isIdentifier(String token) {
+        int length = token.length();
+        if (length >= 2 && token.charAt(0) == '_' && token.charAt(1) == '_') {
+            return false;
+        }
+        boolean onlyUnderscores = true;
+        for (int i = 0; i < length; i++) {
+            char ch = token.charAt(i);
+            if (ch >= ASCII_SIZE || CHAR_CLASSES[ch] != WORD) {
+                return false;
             }
-            if (!currentToken.isEmpty()) break;
+            onlyUnderscores &= ch == '_';
         }
+        return length == 0 || !onlyUnderscores;
     }
 
     /**
-     * Checks if the current token is of type identifier
-     * @return : String - The current token's type
+     * Checks if the current token is an int literal, i.e. one or more decimal digits. The sign of
+     * a literal is a token of its own. The slice is checked in place, without creating its text
+     * @return : boolean - True if the current token is an int literal and False otherwise
      */
-    public boolean isIdentifier(String token) {
-        return token.matches(IDENTIFIER_PATTERN);
+    public boolean isIntLiteral() {
+        if (currentKind != TokenKind.WORD) {
+            return false;
+        }
+        int start = starts[position];
+        int end = start + lengths[position];
+        for (int index = start; index < end; index++) {
+            byte ch = source.get(index);
+            if (ch < '0' || ch > '9') {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * Getter for the currentToken field
+     * Getter for the current token's text, which is created on the first call for every token
      * @return : String - The current token
      */
     public String getCurrentToken() {
+        if (currentToken == null && currentKind != TokenKind.END) {
+            currentToken = tokenText(position);
+        }
         return currentToken;
     }
 
     /**
-     * Advances one token ahead and saves the prev
+     * Getter for the number of tokens in the file
+     * @return : int - The number of tokens
      */
-    public void lookAhead() {
-        lookAheadBuffer = new TokensBuffer(lineIndex, currentToken, new ArrayList<>(tokensList));
-        advance();
+    public int getTokensCount() {
+        return tokensCount;
     }
 
     /**
-     * Retreats to the saved token
+     * Getter for the kind of the current token
+     * @return : int - One of the TokenKind constants, TokenKind.END when there is no current token
      */
-    public void retreat() {
-        if (lookAheadBuffer != null) {
-            lineIndex = lookAheadBuffer.getIndex();
-            tokensList = lookAheadBuffer.getTokens();
-            currentToken = lookAheadBuffer.getCurrentToken();
-            lookAheadBuffer = null;
+    public int getCurrentKind() {
+        return currentKind;
+    }
+
+    /**
+     * Getter for the offset of the current token's slice in the source
+     * @return : int - The offset of the first byte of the current token
+     */
+    public int getCurrentOffset() {
+        return starts[position];
+    }
+
+    /**
+     * Getter for the length of the current token's slice in the source
+     * @return : int - The number of bytes of the current token
+     */
+    public int getCurrentLength() {
+        return lengths[position];
+    }
+
+    /**
+     * Getter for the text of the line of the current token, without its surrounding whitespace.
+     * After the last token, it is the line of the last token
+     * @return : String - The text of the line, or the empty string if the file has no tokens
+     */
+    public String getCurrentLineText() {
+        if (tokensCount == 0) {
+            return "";
+        }
+        int index = Math.min(Math.max(position, 0), tokensCount - 1);
+        return lines.getLine(lines.findLine(starts[index])).strip();
+    }
+
+    /**
+     * Getter for the number of the line of the current token in the original file. After the last
+     * token, it is the line of the last token
+     * @return : int - The line number, starting at 1, or 0 if the file has no tokens
+     */
+    public int getCurrentLine() {
+        if (tokensCount == 0) {
+            return 0;
+        }
+        int index = Math.min(Math.max(position, 0), tokensCount - 1);
+        return lines.getLineNumber(lines.findLine(starts[index]));
+    }
+
+    /**
+     * Digests the source between two tokens, both included: the text of every line from the
+     * first token to the last one, and its line relative to the line of the first token. Two
+     * ranges have the same digest when they have the same text on the same relative lines,
+     * wherever they are in their files
+     * @param fromMark : int - The mark of the first token
+     * @param toMark : int - The mark of the last token
+     * @param digest : MessageDigest - The digest the source is added to
+     */
+    public void digestTokens(int fromMark, int toMark, MessageDigest digest) {
+        int from = Math.max(fromMark, 0);
+        int to = Math.min(toMark, tokensCount - 1);
+        if (from > to) {
+            return;
+        }
+        int firstLine = lines.findLine(starts[from]);
+        int lastLine = lines.findLine(starts[to]);
+        int firstLineNumber = lines.getLineNumber(firstLine);
+        ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+        for (int line = firstLine; line <= lastLine; line++) {
+            int start = line == firstLine ? starts[from] : lines.getLineStart(line);
+            int end = line == lastLine ? starts[to] + lengths[to] : lines.getLineEnd(line);
+            header.clear().putInt(lines.getLineNumber(line) - firstLineNumber).putInt(end - start);
+            digest.update(header.flip());
+            digest.update(source.slice(start, end - start));
         }
     }
 
+    /**
+     * Marks the current position of the cursor, so it can be restored later with
+     * {@link #reset(int)}. Marks can be nested, every mark is just the saved position
+     * @return : int - The mark of the current position
+     */
+    public int mark() {
+        return position;
+    }
+
+    /**
+     * Resets the cursor to a position saved by {@link #mark()}
+     * @param mark : int - A mark returned by mark()
+     */
+    public void reset(int mark) {
+        position = mark;
+        boolean inRange = position >= 0 && position < tokensCount;
+        currentKind = inRange ? kinds[position] : TokenKind.END;
+        currentToken = null;
+    }
+
 }
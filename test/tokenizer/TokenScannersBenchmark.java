@@ -0,0 +1,161 @@
+package tokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the hand-written identifier and int literal scanners of the Tokenizer with the regexes
+ * they replaced. It first checks that they agree with the regexes on random strings, and then
+ * times both on the same strings. There is no benchmark harness in the tree, so this is a plain
+ * main class with warm up rounds, and its figures are only a rough guide.
+ * Run with: java -cp out tokenizer.TokenScannersBenchmark [strings] [seed]
+ * It exits with 1 if a scanner disagrees with its regex, and with 0 otherwise.
+ */
+public class TokenScannersBenchmark {
+
+    // The regexes of the original engine and tokenizer
+    private static final String IDENTIFIER_PATTERN = "^(?!_+$)(?!__)[a-zA-Z0-9_]*$";
+    private static final String VALID_INT_REGEX = "^[+-]?\\d+$";
+
+    private static final int DEFAULT_STRINGS = 1000000;
+    private static final long DEFAULT_SEED = 1;
+    private static final int MAX_LENGTH = 12;
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int TIMED_ROUNDS = 5;
+    private static final int MAX_REPORTED = 10;
+    private static final String CHARS = "abcXYZ019__+-.$ ";
+
+    /**
+     * Runs the check and the timing
+     * @param args : String[] - Optionally the number of strings and the seed of the generator
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_STRINGS;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+        Random random = new Random(seed);
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            strings[i] = randomString(random);
+        }
+        Tokenizer words = wordsTokenizer(strings);
+
+        int mismatches = checkIdentifiers(strings) + checkIntLiterals(words);
+        System.out.printf("%d strings, %d mismatches%n", count, mismatches);
+        if (mismatches != 0) {
+            System.exit(1);
+        }
+
+        Pattern identifierPattern = Pattern.compile(IDENTIFIER_PATTERN);
+        Pattern intPattern = Pattern.compile(VALID_INT_REGEX);
+        for (int round = 0; round < WARM_UP_ROUNDS + TIMED_ROUNDS; round++) {
+            boolean isTimed = round >= WARM_UP_ROUNDS;
+            time("isIdentifier", isTimed, count, () -> {
+                int matches = 0;
+                for (String string : strings) {
+                    matches += Tokenizer.isIdentifier(string) ? 1 : 0;
+                }
+                return matches;
+            });
+            time("identifier regex", isTimed, count, () -> {
+                int matches = 0;
+                for (String string : strings) {
+                    matches += identifierPattern.matcher(string).matches() ? 1 : 0;
+                }
+                return matches;
+            });
+            time("isIntLiteral", isTimed, words.getTokensCount(), () -> {
+                int matches = 0;
+                words.reset(-1);
+                words.advance();
+                while (words.getCurrentKind() != TokenKind.END) {
+                    matches += words.isIntLiteral() ? 1 : 0;
+                    words.advance();
+                }
+                return matches;
+            });
+            time("int regex", isTimed, words.getTokensCount(), () -> {
+                int matches = 0;
+                words.reset(-1);
+                words.advance();
+                while (words.getCurrentKind() != TokenKind.END) {
+                    matches += intPattern.matcher(words.getCurrentToken()).matches() ? 1 : 0;
+                    words.advance();
+                }
+                return matches;
+            });
+        }
+        System.exit(0);
+    }
+
+    // A timed loop, which returns a result so it is not optimized away
+    private interface Loop {
+        int run();
+    }
+
+    // Runs a loop over a number of operations, and prints its time per operation if it is timed
+    private static void time(String name, boolean isTimed, int operations, Loop loop) {
+        long start = System.nanoTime();
+        int result = loop.run();
+        long nanos = System.nanoTime() - start;
+        if (isTimed) {
+            System.out.printf("%-18s %8.1f ns/op (%d matches)%n", name,
+                    (double) nanos / operations, result);
+        }
+    }
+
+    // Checks isIdentifier against the identifier regex, and returns the number of mismatches
+    private static int checkIdentifiers(String[] strings) {
+        int mismatches = 0;
+        for (String string : strings) {
+            boolean expected = string.matches(IDENTIFIER_PATTERN);
+            if (Tokenizer.isIdentifier(string) != expected && mismatches++ < MAX_REPORTED) {
+                System.out.printf("isIdentifier(\"%s\"): expected %b%n", string, expected);
+            }
+        }
+        return mismatches;
+    }
+
+    // Checks isIntLiteral against the int regex on every token, and returns the number of
+    // mismatches
+    private static int checkIntLiterals(Tokenizer words) {
+        int mismatches = 0;
+        words.reset(-1);
+        words.advance();
+        while (words.getCurrentKind() != TokenKind.END) {
+            String token = words.getCurrentToken();
+            boolean expected = token.matches(VALID_INT_REGEX);
+            if (words.isIntLiteral() != expected && mismatches++ < MAX_REPORTED) {
+                System.out.printf("isIntLiteral(\"%s\"): expected %b%n", token, expected);
+            }
+            words.advance();
+        }
+        return mismatches;
+    }
+
+    // Tokenizes the strings, every one in a line of its own
+    private static Tokenizer wordsTokenizer(String[] strings) {
+        byte[] text = String.join("\n", strings).getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer source = ByteBuffer.wrap(text);
+        SourceLines lines = new SourceLines(source, StandardCharsets.US_ASCII);
+        int start = 0;
+        for (int i = 0; i < strings.length; i++) {
+            lines.addLine(start, start + strings[i].length(), i + 1);
+            start += strings[i].length() + 1;
+        }
+        return new Tokenizer(lines);
+    }
+
+    // Generates a short string, mostly of word characters, with signs and other characters
+    private static String randomString(Random random) {
+        int length = random.nextInt(MAX_LENGTH);
+        StringBuilder string = new StringBuilder();
+        boolean isDigits = random.nextInt(3) == 0;
+        for (int i = 0; i < length; i++) {
+            string.append(isDigits ? (char) ('0' + random.nextInt(10)) :
+                    CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+        return string.toString();
+    }
+}
@@ -0,0 +1,126 @@
+package tokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks that the Tokenizer produces the same tokens as the regex split it replaced, the
+ * "SYMBOLS_REGEX | \w+" pattern of the original getTokensFromLine, on randomly generated lines.
+ * The lines mix word characters, symbols, separators, other ASCII characters and bytes outside
+ * ASCII, so every character class and every boundary between two of them is exercised.
+ * Run with: java -cp out tokenizer.TokenizerEquivalenceCheck [lines] [seed]
+ * It prints the first mismatches and exits with 1 if there are any, and with 0 otherwise.
+ */
+public class TokenizerEquivalenceCheck {
+
+    // The split of the original tokenizer
+    private static final String SYMBOLS_REGEX = "[{}()\\[\\],;~%^+/$.\\-#@*~&|<>=\"']";
+    private static final String TOKEN_SPLIT = "(" + SYMBOLS_REGEX + "|\\w+)";
+    private static final Pattern TOKEN_PATTERN = Pattern.compile(TOKEN_SPLIT);
+
+    private static final int DEFAULT_LINES = 200000;
+    private static final long DEFAULT_SEED = 1;
+    private static final int MAX_LINE_LENGTH = 80;
+    private static final int MAX_REPORTED = 10;
+    private static final String WORD_CHARS =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_";
+    private static final String SYMBOL_CHARS = "{}()[],;~%^+/$.-#@*&|<>=\"'";
+    private static final String SEPARATOR_CHARS = " \t\u000b\f";
+    private static final String OTHER_CHARS = "!?:`\\\u0000\u0001\u007f";
+    private static final String[] KEYWORDS = {"void", "final", "if", "while", "return", "true",
+            "false", "int", "double", "boolean", "char", "String"};
+
+    /**
+     * Runs the check
+     * @param args : String[] - Optionally the number of lines and the seed of the generator
+     */
+    public static void main(String[] args) {
+        int linesCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LINES;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+        Random random = new Random(seed);
+
+        byte[][] lines = new byte[linesCount][];
+        for (int i = 0; i < linesCount; i++) {
+            lines[i] = randomLine(random);
+        }
+        ArrayList<String> expected = new ArrayList<>();
+        for (byte[] line : lines) {
+            // ISO-8859-1 keeps every byte as a single character, and \w is ASCII only
+            Matcher matcher = TOKEN_PATTERN.matcher(new String(line, StandardCharsets.ISO_8859_1));
+            while (matcher.find()) {
+                expected.add(matcher.group());
+            }
+        }
+        ArrayList<String> actual = tokenize(lines);
+
+        int mismatches = 0;
+        int count = Math.max(expected.size(), actual.size());
+        for (int i = 0; i < count; i++) {
+            String expectedToken = i < expected.size() ? expected.get(i) : null;
+            String actualToken = i < actual.size() ? actual.get(i) : null;
+            if (expectedToken == null || !expectedToken.equals(actualToken)) {
+                if (mismatches++ < MAX_REPORTED) {
+                    System.out.printf("token %d: expected %s, got %s%n", i, expectedToken,
+                            actualToken);
+                }
+            }
+        }
+        System.out.printf("%d lines, %d tokens, %d mismatches%n", linesCount, expected.size(),
+                mismatches);
+        System.exit(mismatches == 0 ? 0 : 1);
+    }
+
+    // Tokenizes the lines, separated by line feeds, with the Tokenizer
+    private static ArrayList<String> tokenize(byte[][] lines) {
+        int size = 0;
+        for (byte[] line : lines) {
+            size += line.length + 1;
+        }
+        ByteBuffer source = ByteBuffer.allocate(size);
+        SourceLines sourceLines = new SourceLines(source, StandardCharsets.ISO_8859_1);
+        for (int i = 0; i < lines.length; i++) {
+            int start = source.position();
+            source.put(lines[i]);
+            sourceLines.addLine(start, source.position(), i + 1);
+            source.put((byte) '\n');
+        }
+        source.flip();
+
+        Tokenizer tokenizer = new Tokenizer(sourceLines);
+        ArrayList<String> tokens = new ArrayList<>();
+        tokenizer.advance();
+        while (tokenizer.getCurrentKind() != TokenKind.END) {
+            tokens.add(tokenizer.getCurrentToken());
+            tokenizer.advance();
+        }
+        return tokens;
+    }
+
+    // Generates a line of random characters, with keywords and runs of word characters mixed in
+    private static byte[] randomLine(Random random) {
+        StringBuilder line = new StringBuilder();
+        int length = random.nextInt(MAX_LINE_LENGTH);
+        while (line.length() < length) {
+            int choice = random.nextInt(10);
+            if (choice < 3) {
+                line.append(WORD_CHARS.charAt(random.nextInt(WORD_CHARS.length())));
+            } else if (choice < 5) {
+                line.append(SYMBOL_CHARS.charAt(random.nextInt(SYMBOL_CHARS.length())));
+            } else if (choice < 7) {
+                line.append(SEPARATOR_CHARS.charAt(random.nextInt(SEPARATOR_CHARS.length())));
+            } else if (choice == 7) {
+                line.append(KEYWORDS[random.nextInt(KEYWORDS.length)]);
+            } else if (choice == 8) {
+                line.append(OTHER_CHARS.charAt(random.nextInt(OTHER_CHARS.length())));
+            } else {
+                // A byte outside ASCII
+                line.append((char) (0x80 + random.nextInt(0x80)));
+            }
+        }
+        return line.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+}